@@ -9,6 +9,7 @@ plugins {
     alias(libs.plugins.changelog) // Gradle Changelog Plugin
     alias(libs.plugins.qodana) // Gradle Qodana Plugin
     alias(libs.plugins.kover) // Gradle Kover Plugin
+    alias(libs.plugins.jmh) // JMH benchmarks in src/jmh
 }
 
 group = providers.gradleProperty("pluginGroup").get()
@@ -34,7 +35,9 @@ dependencies {
     testImplementation(libs.junit)
     implementation("com.openai:openai-java:2.2.0")
     implementation("com.google.genai:google-genai:1.5.0")
-    compileOnly("org.jacoco:org.jacoco.core:0.8.12")
+    implementation("org.jacoco:org.jacoco.core:0.8.12")
+    implementation("org.jacoco:org.jacoco.agent:0.8.12")
+    implementation("org.junit.platform:junit-platform-launcher:1.10.2")
 
     // IntelliJ Platform Gradle Plugin Dependencies Extension - read more: https://plugins.jetbrains.com/docs/intellij/tools-intellij-platform-gradle-plugin-dependencies-extension.html
     intellijPlatform {
@@ -117,6 +120,19 @@ changelog {
     repositoryUrl = providers.gradleProperty("pluginRepositoryUrl")
 }
 
+// Configure JMH Gradle Plugin - read more: https://github.com/melix/jmh-gradle-plugin
+// `./gradlew jmh` runs every benchmark, `./gradlew jmh -PjmhIncludes=TeamCity` a subset (regex on the benchmark name).
+// Results land in build/reports/jmh/results.json for comparison against earlier runs.
+jmh {
+    jmhVersion = libs.versions.jmh
+    includes = providers.gradleProperty("jmhIncludes").map { listOf(it) }.orElse(emptyList())
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+}
+
 // Configure Gradle Kover Plugin - read more: https://github.com/Kotlin/kotlinx-kover#configuration
 kover {
     reports {
@@ -0,0 +1,188 @@
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic benchmark inputs shaped like what the pipeline sees: classes under test from a
+ * handful of methods to a few thousand, their generated tests, compiler output, JSON replies and
+ * the {@code ##teamcity[...]} output of test runs.
+ */
+final class Corpus {
+
+    /** Size of a class under test; a method is about 600 characters with its Javadoc. */
+    enum Size {
+        SMALL(5), MEDIUM(40), LARGE(300), HUGE(2_000);
+
+        final int methods;
+
+        Size(int methods) {
+            this.methods = methods;
+        }
+    }
+
+    static String classUnderTest(Size size) {
+        StringBuilder out = new StringBuilder("""
+                package com.example.orders;
+
+                import java.util.HashMap;
+                import java.util.List;
+                import java.util.Map;
+                import java.util.Objects;
+
+                /** Prices and reserves stock for incoming orders. */
+                public class OrderService {
+
+                    private final Map<String, Integer> stock = new HashMap<>();
+                    private final Map<String, Long> prices = new HashMap<>();
+
+                """);
+        for (int i = 0; i < size.methods; i++) {
+            out.append("""
+                        /**
+                         * Totals line %1$d of an order, capping each quantity at {@code limit}.
+                         *
+                         * @param lines order lines as SKU identifiers
+                         * @param limit the maximum quantity counted per line
+                         */
+                        public long total%1$d(List<String> lines, int limit) {
+                            Objects.requireNonNull(lines, "lines");
+                            long total = 0;
+                            for (String sku : lines) {
+                                if (sku == null || sku.isBlank()) continue;
+                                int quantity = stock.getOrDefault(sku, 0);
+                                total += (quantity > limit ? limit : quantity) * prices.getOrDefault(sku, %1$dL);
+                            }
+                            if (total > %2$d && limit < %1$d) {
+                                throw new IllegalStateException("Order over limit: " + total);
+                            }
+                            return total;
+                        }
+
+                    """.formatted(i, 1_000 + i));
+        }
+        return out.append("}\n").toString();
+    }
+
+    static String testClass(Size size) {
+        StringBuilder out = new StringBuilder("""
+                package com.example.orders;
+
+                import org.junit.jupiter.api.BeforeEach;
+                import org.junit.jupiter.api.Test;
+
+                import java.util.List;
+
+                import static org.junit.jupiter.api.Assertions.*;
+
+                class OrderServiceTest {
+
+                    private OrderService service;
+
+                    @BeforeEach
+                    void setUp() {
+                        service = new OrderService();
+                    }
+
+                """);
+        for (int i = 0; i < size.methods; i++) {
+            out.append("""
+                        @Test
+                        void total%1$dIgnoresBlankLines() {
+                            assertEquals(0L, service.total%1$d(List.of("", " "), 10));
+                        }
+
+                        @Test
+                        void total%1$dRejectsNullLines() {
+                            assertThrows(NullPointerException.class, () -> service.total%1$d(null, 10));
+                        }
+
+                    """.formatted(i));
+        }
+        return out.append("}\n").toString();
+    }
+
+    /** javac-style errors as {@link CoverageJacocoUtil#compileJUnitClasses} reports them. */
+    static String compileErrors(int errors) {
+        StringBuilder out = new StringBuilder("COMPILATION_FAILED\n");
+        for (int i = 0; i < errors; i++) {
+            out.append("OrderServiceTest.java:").append(20 + 7 * i).append(": cannot find symbol\n")
+                    .append("    symbol:   method totalX").append(i).append("(java.util.List<java.lang.String>,int)\n")
+                    .append("    location: variable service of type com.example.orders.OrderService\n");
+        }
+        return out.toString();
+    }
+
+    /** The structured reply the model sends for {@code testSource}. */
+    static String jsonReply(String testSource) {
+        try {
+            return new ObjectMapper().writeValueAsString(Map.of("outputTestClass", testSource));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Output of one batched JUnit run over {@code classes} test classes of {@code testsPerClass}
+     * tests each, in the shape of IntelliJ's runner; every 20th test fails with a stack trace.
+     */
+    static String teamCityOutput(int classes, int testsPerClass) {
+        StringBuilder out = new StringBuilder();
+        int node = 0;
+        for (int c = 0; c < classes; c++) {
+            String cls = "com.example.orders.Service" + c + "Test";
+            int suite = ++node;
+            out.append("##teamcity[testSuiteStarted name='Service").append(c).append("Test' locationHint='java:suite://")
+                    .append(cls).append("' nodeId='").append(suite).append("' parentNodeId='0']\n");
+            for (int t = 0; t < testsPerClass; t++) {
+                int id = ++node;
+                out.append("##teamcity[testStarted name='total").append(t).append("()' locationHint='java:test://")
+                        .append(cls).append("/total").append(t).append("' nodeId='").append(id)
+                        .append("' parentNodeId='").append(suite).append("']\n");
+                out.append("12:00:0").append(t % 10).append(".123 [main] DEBUG com.example.orders.OrderService - pricing ")
+                        .append(t).append(" lines\n");
+                if (t % 20 == 7) {
+                    out.append("##teamcity[testFailed name='total").append(t).append("()' message='expected: <0> but was: <")
+                            .append(t).append(">' details='").append(stackTrace(cls, t)).append("' nodeId='").append(id)
+                            .append("' parentNodeId='").append(suite).append("']\n");
+                }
+                out.append("##teamcity[testFinished name='total").append(t).append("()' duration='3' nodeId='")
+                        .append(id).append("' parentNodeId='").append(suite).append("']\n");
+            }
+            out.append("##teamcity[testSuiteFinished name='Service").append(c).append("Test' nodeId='").append(suite).append("']\n");
+        }
+        return out.toString();
+    }
+
+    static List<String> classNames(int classes) {
+        List<String> names = new ArrayList<>();
+        for (int c = 0; c < classes; c++) names.add("com.example.orders.Service" + c + "Test");
+        return names;
+    }
+
+    /** Splits {@code text} into chunks of {@code size} characters, as a process or HTTP stream delivers it. */
+    static List<String> chunks(String text, int size) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += size) chunks.add(text.substring(i, Math.min(text.length(), i + size)));
+        return chunks;
+    }
+
+    private static String stackTrace(String cls, int test) {
+        StringBuilder trace = new StringBuilder("org.opentest4j.AssertionFailedError: expected: <0> but was: <" + test + ">|n");
+        trace.append("\tat org.junit.jupiter.api.AssertionFailureBuilder.build(AssertionFailureBuilder.java:151)|n");
+        trace.append("\tat org.junit.jupiter.api.AssertEquals.assertEquals(AssertEquals.java:166)|n");
+        trace.append("\tat ").append(cls).append(".total").append(test).append("(").append(cls, cls.lastIndexOf('.') + 1, cls.length())
+                .append(".java:").append(30 + test).append(")|n");
+        for (int i = 0; i < 30; i++) {
+            trace.append("\tat org.junit.platform.engine.support.hierarchical.NodeTestTask.executeRecursively(NodeTestTask.java:")
+                    .append(100 + i).append(")|n");
+        }
+        return trace.toString();
+    }
+
+    private Corpus() {}
+}
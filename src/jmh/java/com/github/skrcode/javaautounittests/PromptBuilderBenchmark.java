@@ -0,0 +1,55 @@
+package com.github.skrcode.javaautounittests;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/** {@link PromptBuilder}: placeholder replacement over whole class and test sources, per class size. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PromptBuilderBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "HUGE"})
+    public Corpus.Size size;
+
+    private String basePrompt;
+    private ContextModel firstRound;
+    private ContextModel repairRound;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = PromptBuilder.class.getResourceAsStream("/base-prompt")) {
+            if (in == null) throw new IllegalStateException("Bundled base-prompt resource is missing");
+            basePrompt = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        firstRound = new ContextModel();
+        firstRound.qualifiedName = "com.example.orders.OrderService";
+        firstRound.fullSource = Corpus.classUnderTest(size);
+
+        repairRound = new ContextModel();
+        repairRound.qualifiedName = firstRound.qualifiedName;
+        repairRound.fullSource = firstRound.fullSource;
+        repairRound.existingTestSource = Corpus.testClass(size);
+        repairRound.errorMessage = Corpus.compileErrors(20);
+        repairRound.failingMethods = Corpus.testClass(Corpus.Size.SMALL);
+    }
+
+    @Benchmark
+    public String firstPrompt() {
+        return PromptBuilder.build(basePrompt, firstRound);
+    }
+
+    @Benchmark
+    public String fixPrompt() {
+        return PromptBuilder.build(basePrompt, repairRound);
+    }
+
+    @Benchmark
+    public String repairPrompt() {
+        return PromptBuilder.buildRepair(repairRound);
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.skrcode.javaautounittests.llm.StreamingTestClassParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a model reply into its test class: in one piece into {@link ResponseOutput}, as the
+ * non-streaming providers do, and chunk by chunk through {@link StreamingTestClassParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReplyParsingBenchmark {
+
+    /** Configured as in {@code GeminiProvider}. */
+    private static final ObjectReader RESPONSE_READER = new ObjectMapper().readerFor(ResponseOutput.class);
+    /** Roughly what one server-sent event carries. */
+    private static final int CHUNK_CHARS = 64;
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "HUGE"})
+    public Corpus.Size size;
+
+    private String reply;
+    private List<String> chunks;
+
+    @Setup
+    public void setUp() {
+        reply = Corpus.jsonReply(Corpus.testClass(size));
+        chunks = Corpus.chunks(reply, CHUNK_CHARS);
+    }
+
+    @Benchmark
+    public String jackson() throws IOException {
+        ResponseOutput parsed = RESPONSE_READER.readValue(reply);
+        return parsed.outputTestClass;
+    }
+
+    @Benchmark
+    public String streaming() throws StreamingTestClassParser.EarlyAbortException {
+        // no reply cap, so that huge replies are parsed to the end instead of aborted
+        StreamingTestClassParser parser = new StreamingTestClassParser(Integer.MAX_VALUE, 8_000);
+        for (String chunk : chunks) parser.feed(chunk);
+        return parser.finish();
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.skrcode.javaautounittests;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** {@link TeamCityFailureRouter}: parsing the output of one batched test run into per-class reports. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TeamCityRouterBenchmark {
+
+    /** What a process handler hands over per {@code onTextAvailable}, give or take. */
+    private static final int CHUNK_CHARS = 8_192;
+
+    /** Test classes in the batch. */
+    @Param({"1", "10", "50"})
+    public int classes;
+
+    @Param({"10", "100"})
+    public int testsPerClass;
+
+    private List<String> names;
+    private List<String> chunks;
+
+    @Setup
+    public void setUp() {
+        names = Corpus.classNames(classes);
+        chunks = Corpus.chunks(Corpus.teamCityOutput(classes, testsPerClass), CHUNK_CHARS);
+    }
+
+    @Benchmark
+    public Map<String, TestReport> route() {
+        TeamCityFailureRouter router = new TeamCityFailureRouter(names);
+        for (String chunk : chunks) router.accept(chunk);
+        return router.reportsByClass();
+    }
+}
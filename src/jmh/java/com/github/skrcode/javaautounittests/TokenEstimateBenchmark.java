@@ -0,0 +1,31 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.llm.Tokens;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Tokens#estimate}, which prompt fitting and the rate limiter run on every prompt. The
+ * tokenizer memoizes pieces across calls, so this is the steady state of a long run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenEstimateBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "HUGE"})
+    public Corpus.Size size;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Corpus.classUnderTest(size);
+    }
+
+    @Benchmark
+    public int estimate() {
+        return Tokens.estimate(source);
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the base prompt once per run, in this order:
+ * <ol>
+ *   <li>the pinned git ref from {@link AISettings#getPromptVersion()}, revalidated against GitHub with
+ *       {@code If-None-Match} / {@code If-Modified-Since} so an unchanged prompt costs a 304 only;</li>
+ *   <li>the last good on-disk copy of that ref, when the network is unavailable;</li>
+ *   <li>the {@code base-prompt} resource bundled with the plugin (also used when pinned to {@value #BUNDLED}).</li>
+ * </ol>
+ */
+public final class BasePromptCache {
+
+    public static final String BUNDLED = "bundled";
+
+    private static final Logger LOG = Logger.getInstance(BasePromptCache.class);
+    private static final String PROMPT_URL =
+            "https://raw.githubusercontent.com/skrcode/java-auto-unit-tests/%s/src/main/resources/base-prompt";
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    private static final int READ_TIMEOUT_MS    = 10_000;
+    /** Slash-separated {@code [\w.-]+} segments; {@code .} and {@code ..} are rejected separately. */
+    private static final Pattern VALID_REF = Pattern.compile("[\\w.-]+(?:/[\\w.-]+)*");
+
+    /** Prompt text plus a short content-derived version, so caches can key on the exact template. */
+    public record BasePrompt(@NotNull String text, @NotNull String version) {}
+
+    public static @NotNull BasePrompt load() {
+        String ref = AISettings.getInstance().getPromptVersion();
+        if (ref.isBlank() || BUNDLED.equalsIgnoreCase(ref)) return bundled();
+        if (!isValidRef(ref)) {
+            LOG.warn("JAIPilot: ignoring invalid base prompt version \"" + ref + "\", using the bundled prompt");
+            return bundled();
+        }
+
+        Path dir  = JAIPilotPaths.systemDir("prompts/" + ref.replace('/', '_'));
+        Path body = dir.resolve("base-prompt");
+        Path meta = dir.resolve("base-prompt.properties");
+
+        try {
+            String fetched = revalidate(String.format(PROMPT_URL, ref), body, meta);
+            if (fetched != null) return prompt(fetched, ref);
+        } catch (IOException e) {
+            LOG.info("JAIPilot: base prompt fetch failed for " + ref + ", using local copy", e);
+        }
+        try {
+            if (Files.exists(body)) return prompt(Files.readString(body), ref);
+        } catch (IOException e) {
+            LOG.warn("JAIPilot: cached base prompt unreadable: " + body, e);
+        }
+        return bundled();
+    }
+
+    /** The ref ends up in a URL path and a directory name, so it must not be able to step out of either. */
+    private static boolean isValidRef(@NotNull String ref) {
+        if (!VALID_REF.matcher(ref).matches()) return false;
+        for (String segment : ref.split("/")) {
+            if (segment.equals(".") || segment.equals("..")) return false;
+        }
+        return true;
+    }
+
+    /** Conditional GET; returns the current prompt text, refreshing the disk copy on 200. */
+    private static @Nullable String revalidate(String url, Path body, Path meta) throws IOException {
+        Properties validators = new Properties();
+        if (Files.exists(meta) && Files.exists(body)) {
+            try (Reader r = Files.newBufferedReader(meta)) { validators.load(r); }
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        String etag = validators.getProperty("etag");
+        String lastModified = validators.getProperty("lastModified");
+        if (etag != null) conn.setRequestProperty("If-None-Match", etag);
+        if (lastModified != null) conn.setRequestProperty("If-Modified-Since", lastModified);
+
+        try {
+            int status = conn.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) return Files.readString(body);
+            if (status != HttpURLConnection.HTTP_OK) return null;
+
+            String text;
+            try (InputStream in = conn.getInputStream()) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            writeAtomically(body, text);
+
+            Properties fresh = new Properties();
+            if (conn.getHeaderField("ETag") != null) fresh.setProperty("etag", conn.getHeaderField("ETag"));
+            if (conn.getHeaderField("Last-Modified") != null) fresh.setProperty("lastModified", conn.getHeaderField("Last-Modified"));
+            try (Writer w = Files.newBufferedWriter(meta)) { fresh.store(w, "JAIPilot base prompt validators"); }
+            return text;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static BasePrompt bundled() {
+        try (InputStream in = BasePromptCache.class.getResourceAsStream("/base-prompt")) {
+            if (in == null) throw new IllegalStateException("Bundled base-prompt resource is missing");
+            return prompt(new String(in.readAllBytes(), StandardCharsets.UTF_8), BUNDLED);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read bundled base-prompt", e);
+        }
+    }
+
+    private static BasePrompt prompt(String text, String ref) {
+        return new BasePrompt(text, ref + "@" + Hashes.sha256(text).substring(0, 12));
+    }
+
+    private static void writeAtomically(Path target, String text) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), "base-prompt", ".tmp");
+        Files.writeString(tmp, text);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private BasePromptCache() {}
+}
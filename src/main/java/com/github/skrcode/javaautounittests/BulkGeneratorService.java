@@ -1,9 +1,16 @@
 package com.github.skrcode.javaautounittests;
 
+import com.github.skrcode.javaautounittests.llm.ResponseCache;
+import com.github.skrcode.javaautounittests.metrics.Phase;
+import com.github.skrcode.javaautounittests.metrics.RunMetrics;
+import com.github.skrcode.javaautounittests.settings.AISettings;
 import com.intellij.ide.BrowserUtil;
 import com.intellij.notification.NotificationGroupManager;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -13,14 +20,35 @@ import com.intellij.psi.PsiDirectory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
- * Spins up a background task that iterates over many classes sequentially.
+ * Spins up a background task that pipelines many classes: up to {@code maxParallelClasses} are in
+ * flight at once, while compilation ({@link CompileBatcher}) and test execution
+ * ({@link ExecutionBatcher}) go through their own bounded, batching stages. Classes are
+ * {@link TestGenerationWorker} future chains, so only the task thread itself waits.
+ * <p>
+ * Classes start in the run's {@link BulkOrder}, as arranged by {@link BulkScheduler}.
  */
 public final class BulkGeneratorService {
 
-    public static void enqueue(Project project, List<PsiClass> classes, @Nullable PsiDirectory testRoot) {
+    private static final Logger LOG = Logger.getInstance(BulkGeneratorService.class);
+    /** How long a cancelled run waits for its classes to wind down before shutting their resources. */
+    private static final int SETTLE_TIMEOUT_S = 30;
+    /** Runs whose metrics are kept; older {@code run-*} files are deleted after each export. */
+    private static final int KEEP_METRICS_RUNS = 20;
+    private static final String METRICS_PREFIX = "run-";
+
+    public static void enqueue(Project project, List<PsiClass> classes, @Nullable PsiDirectory testRoot, boolean regenerate,
+                               @NotNull BulkOrder order) {
         ProgressManager.getInstance().run(new Task.Backgroundable(
                 project,
                 "JAIPilot – Generating tests for " + classes.size() + " class(es)",
@@ -28,20 +56,56 @@ public final class BulkGeneratorService {
         ) {
             @Override
             public void run(@NotNull ProgressIndicator indicator) {
-                int idx = 0;
-                for (PsiClass cut : classes) {
-                    if (indicator.isCanceled()) break;
+                AISettings settings = AISettings.getInstance();
+
+                indicator.setText("Loading base prompt");
+                RunMetrics metrics = new RunMetrics();
+                RunMetrics.Span promptLoad = metrics.start(Phase.PROMPT_LOAD, "");
+                BasePromptCache.BasePrompt basePrompt = BasePromptCache.load();
+                promptLoad.end();
+                GenerationRun run = new GenerationRun(basePrompt, classes.size() == 1, regenerate, metrics);
+
+                indicator.setText("Ordering classes");
+                List<PsiClass> ordered = BulkScheduler.order(project, classes, order, regenerate, indicator);
 
-                    indicator.setText("Processing " + cut.getQualifiedName());
-                    indicator.setFraction(idx++ / (double) classes.size());
-                    TestGenerationWorker.process(project, cut, indicator, testRoot);
+                // ── at most N classes in flight; a class waiting for a build or test run holds no thread ──
+                Semaphore slots = new Semaphore(settings.getMaxParallelClasses());
+                AtomicInteger inFlight = new AtomicInteger();
+                AtomicInteger finished = new AtomicInteger();
+                List<CompletableFuture<?>> pending = new ArrayList<>(classes.size());
+                indicator.setIndeterminate(false);
+
+                try {
+                    for (PsiClass cut : ordered) {
+                        if (!acquireCancellable(slots, indicator)) break;
+                        inFlight.incrementAndGet();
+                        String name = ReadAction.compute(cut::getQualifiedName);
+                        indicator.setText("Processing " + name + " (" + inFlight.get() + " in flight)");
+                        pending.add(TestGenerationWorker.process(project, cut, indicator, testRoot, run)
+                                .whenComplete((outcome, error) -> {
+                                    if (error != null && !(error.getCause() instanceof ProcessCanceledException)) {
+                                        LOG.warn("JAIPilot: generation failed for " + name, error);
+                                    }
+                                    inFlight.decrementAndGet();
+                                    indicator.setFraction(finished.incrementAndGet() / (double) classes.size());
+                                    slots.release();
+                                }));
+                    }
+                    for (CompletableFuture<?> f : pending) {
+                        awaitCancellable(f, indicator);
+                    }
+                } finally {
+                    awaitSettled(pending);
+                    ResponseCache.getInstance().flush();
+                    GenerationManifest.getInstance(project).flush();
+                    WarmTestRunner.getInstance(project).stopAll();
+                    exportMetrics(metrics);
                 }
             }
 
             @Override
             public void onCancel() {
-                // Optional: log, cleanup, or notify user
-                System.out.println("JAIPilot bulk generation cancelled by user.");
+                LOG.info("JAIPilot bulk generation cancelled by user");
             }
 
             @Override
@@ -68,4 +132,86 @@ public final class BulkGeneratorService {
 
         });
     }
+
+    /**
+     * Logs where the run's time went and keeps the details of the last {@value #KEEP_METRICS_RUNS} runs
+     * under {@code <ide-system>/jaipilot/metrics}.
+     */
+    private static void exportMetrics(RunMetrics metrics) {
+        LOG.info(metrics.summary());
+        String name = METRICS_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date());
+        try {
+            Path dir = JAIPilotPaths.systemDir("metrics");
+            Path json = metrics.export(dir, name);
+            LOG.info("JAIPilot: run metrics written to " + json.getParent().resolve(name) + "{.json,-phases.csv,-classes.csv}");
+            pruneMetrics(dir, name.length());
+        } catch (IOException | UncheckedIOException e) {
+            LOG.warn("JAIPilot: could not write run metrics", e);
+        }
+    }
+
+    /** Deletes the files of all but the newest runs; a run's files share their timestamped name prefix. */
+    private static void pruneMetrics(Path dir, int nameLength) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(p -> p.getFileName().toString().startsWith(METRICS_PREFIX)
+                    && p.getFileName().toString().length() >= nameLength).toList();
+        }
+        List<String> runs = files.stream().map(p -> p.getFileName().toString().substring(0, nameLength))
+                .distinct().sorted(Comparator.reverseOrder()).toList();
+        if (runs.size() <= KEEP_METRICS_RUNS) return;
+        Set<String> expired = new HashSet<>(runs.subList(KEEP_METRICS_RUNS, runs.size()));
+        for (Path file : files) {
+            if (expired.contains(file.getFileName().toString().substring(0, nameLength))) Files.deleteIfExists(file);
+        }
+    }
+
+    /** Waits for a free slot while still reacting to the red "×" on the progress bar. */
+    private static boolean acquireCancellable(Semaphore slots, ProgressIndicator indicator) {
+        try {
+            while (!slots.tryAcquire(200, TimeUnit.MILLISECONDS)) {
+                if (indicator.isCanceled()) return false;
+            }
+            return !indicator.isCanceled();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * After a cancel, classes still in flight notice it at their next step; waits (bounded) until they
+     * have, so warm runners are not stopped under a running test and the metrics are complete.
+     */
+    private static void awaitSettled(List<CompletableFuture<?>> pending) {
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(SETTLE_TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("JAIPilot: classes still running " + SETTLE_TIMEOUT_S + " s after cancel, shutting down anyway");
+        } catch (ExecutionException | CancellationException ignored) {
+            // failures are logged when the class completes
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Waits for one class while still reacting to the red "×" on the progress bar. */
+    private static void awaitCancellable(Future<?> f, ProgressIndicator indicator) {
+        while (true) {
+            if (indicator.isCanceled()) {
+                return;                         // classes notice the cancellation at their next step
+            }
+            try {
+                f.get(200, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ignored) {
+                // poll again
+            } catch (CancellationException | ExecutionException e) {
+                return;                         // failures are logged when the class completes
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
 }
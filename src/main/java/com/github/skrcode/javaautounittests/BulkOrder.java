@@ -0,0 +1,24 @@
+package com.github.skrcode.javaautounittests;
+
+import org.jetbrains.annotations.NotNull;
+
+/** Order in which a bulk run starts its classes; see {@link BulkScheduler}. */
+public enum BulkOrder {
+    /** Longest expected classes first: the big ones overlap with the rest, which keeps the run short. */
+    LONGEST_FIRST("Longest first (shortest total run)"),
+    /** Cheapest expected classes first: the most finished tests early, and the most done if cancelled. */
+    CHEAPEST_FIRST("Quick wins first (most tests per minute)"),
+    /** The order the classes were found in. */
+    DISCOVERY("As found");
+
+    private final String label;
+
+    BulkOrder(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.llm.Tokens;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders the classes of a bulk run by how long each is expected to take. A class that ran before is
+ * expected to take as long as its last finished run in the {@link GenerationManifest}; one that is
+ * expected to be skipped as unchanged costs nothing. Any other class gets a static score from its
+ * size, method count and branches, turned into time with the median time-per-point of the classes in
+ * this run that do have history.
+ */
+final class BulkScheduler {
+
+    private static final Logger LOG = Logger.getInstance(BulkScheduler.class);
+
+    /** Time per score point while no class of the run has history: a plain ten-method class takes about a minute. */
+    private static final double DEFAULT_MILLIS_PER_POINT = 1_000;
+    private static final int    TOKENS_PER_POINT         = 100;
+    private static final int    POINTS_PER_METHOD        = 2;
+
+    /**
+     * @param score    static size/complexity score, always computed
+     * @param history  duration of the last finished run, {@code 0} if none
+     * @param skipped  expected to be skipped as unchanged
+     */
+    record Estimate(PsiClass cut, String qualifiedName, int score, long history, boolean skipped) {}
+
+    static @NotNull List<PsiClass> order(@NotNull Project project, @NotNull List<PsiClass> classes, @NotNull BulkOrder order,
+                                         boolean regenerate, @NotNull ProgressIndicator ind) {
+        if (order == BulkOrder.DISCOVERY || classes.size() < 2) return classes;
+
+        GenerationManifest manifest = GenerationManifest.getInstance(project);
+        List<Estimate> estimates = new ArrayList<>(classes.size());
+        for (int i = 0; i < classes.size(); i++) {
+            ind.checkCanceled();
+            ind.setFraction(i / (double) classes.size());
+            PsiClass cut = classes.get(i);
+            estimates.add(ReadAction.compute(() -> {
+                String qualifiedName = cut.getQualifiedName();
+                boolean skipped = !regenerate && manifest.succeededOn(qualifiedName, Hashes.sha256(cut.getContainingFile().getText()));
+                return new Estimate(cut, qualifiedName, score(cut), manifest.durationMillis(qualifiedName), skipped);
+            }));
+        }
+
+        double millisPerPoint = millisPerPoint(estimates);
+        Comparator<Estimate> byExpected = Comparator.comparingDouble(e -> expectedMillis(e, millisPerPoint));
+        estimates.sort(order == BulkOrder.LONGEST_FIRST ? byExpected.reversed() : byExpected);   // stable: ties keep discovery order
+
+        long known = estimates.stream().filter(e -> e.history() > 0).count();
+        LOG.info("JAIPilot: " + order.name() + " order for " + estimates.size() + " classes (" + known
+                + " with history, " + Math.round(millisPerPoint) + " ms per score point), first "
+                + estimates.get(0).qualifiedName() + " at ~" + Math.round(expectedMillis(estimates.get(0), millisPerPoint) / 1000) + " s");
+        return estimates.stream().map(Estimate::cut).toList();
+    }
+
+    private static double expectedMillis(Estimate e, double millisPerPoint) {
+        if (e.skipped()) return 0;
+        return e.history() > 0 ? e.history() : e.score() * millisPerPoint;
+    }
+
+    /** Median of duration / score over the classes with history, so history and scores share a scale. */
+    private static double millisPerPoint(List<Estimate> estimates) {
+        double[] ratios = estimates.stream()
+                .filter(e -> e.history() > 0)
+                .mapToDouble(e -> e.history() / (double) e.score())
+                .sorted()
+                .toArray();
+        return ratios.length == 0 ? DEFAULT_MILLIS_PER_POINT : ratios[ratios.length / 2];
+    }
+
+    /** Read action only. Size in tokens, methods to cover and branches to reach – roughly what drives iterations. */
+    private static int score(@NotNull PsiClass cut) {
+        int[] branches = {0};
+        cut.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitIfStatement(@NotNull PsiIfStatement statement) {
+                branches[0]++;
+                super.visitIfStatement(statement);
+            }
+
+            @Override
+            public void visitForStatement(@NotNull PsiForStatement statement) {
+                branches[0]++;
+                super.visitForStatement(statement);
+            }
+
+            @Override
+            public void visitForeachStatement(@NotNull PsiForeachStatement statement) {
+                branches[0]++;
+                super.visitForeachStatement(statement);
+            }
+
+            @Override
+            public void visitWhileStatement(@NotNull PsiWhileStatement statement) {
+                branches[0]++;
+                super.visitWhileStatement(statement);
+            }
+
+            @Override
+            public void visitDoWhileStatement(@NotNull PsiDoWhileStatement statement) {
+                branches[0]++;
+                super.visitDoWhileStatement(statement);
+            }
+
+            @Override
+            public void visitSwitchLabelStatement(@NotNull PsiSwitchLabelStatement statement) {
+                branches[0]++;
+                super.visitSwitchLabelStatement(statement);
+            }
+
+            @Override
+            public void visitSwitchLabeledRuleStatement(@NotNull PsiSwitchLabeledRuleStatement statement) {
+                branches[0]++;
+                super.visitSwitchLabeledRuleStatement(statement);
+            }
+
+            @Override
+            public void visitCatchSection(@NotNull PsiCatchSection section) {
+                branches[0]++;
+                super.visitCatchSection(section);
+            }
+
+            @Override
+            public void visitConditionalExpression(@NotNull PsiConditionalExpression expression) {
+                branches[0]++;
+                super.visitConditionalExpression(expression);
+            }
+
+            @Override
+            public void visitPolyadicExpression(@NotNull PsiPolyadicExpression expression) {
+                IElementType op = expression.getOperationTokenType();
+                if (op == JavaTokenType.ANDAND || op == JavaTokenType.OROR) branches[0] += expression.getOperands().length - 1;
+                super.visitPolyadicExpression(expression);
+            }
+        });
+        int tokens = Tokens.estimate(cut.getText());
+        return Math.max(1, tokens / TOKENS_PER_POINT + POINTS_PER_METHOD * cut.getMethods().length + branches[0]);
+    }
+
+    private BulkScheduler() {}
+}
@@ -0,0 +1,182 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.llm.Tokens;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtilCore;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Compact API signatures of the project types a class under test uses – constructors, non-private
+ * methods, record components and enum constants – so the model stops guessing collaborator APIs.
+ * Signatures are built from the PSI/stub API (no {@code getText()}, so source files of collaborators
+ * are not parsed) and cached on the PSI: the collaborator list of a CUT is invalidated when the CUT's
+ * file changes, a type's signature when its own file changes. A project-wide tracker would not do, as
+ * every generated test written during a bulk run bumps it.
+ * <p>
+ * Callers must hold a read action.
+ */
+public final class CollaboratorIndex {
+
+    private static final Key<CachedValue<List<String>>> COLLABORATORS = Key.create("jaipilot.collaborators");
+    private static final Key<CachedValue<String>> SIGNATURE = Key.create("jaipilot.signature");
+
+    /** References from fields and constructor parameters are the collaborators tests have to mock. */
+    private static final int INJECTED_WEIGHT = 10;
+
+    private final Project project;
+
+    public CollaboratorIndex(Project project) {
+        this.project = project;
+    }
+
+    public static CollaboratorIndex getInstance(Project project) {
+        return project.getService(CollaboratorIndex.class);
+    }
+
+    /** Signatures of the CUT's collaborators, most used first, within {@code tokenBudget}. */
+    public @NotNull String signaturesFor(@NotNull PsiClass cut, int tokenBudget) {
+        StringBuilder out = new StringBuilder();
+        List<String> omitted = new ArrayList<>();
+        JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
+        int used = 0;
+        for (String name : collaborators(cut)) {
+            PsiClass type = facade.findClass(name, GlobalSearchScope.projectScope(project));
+            if (type == null) continue;
+            String signature = signature(type);
+            int tokens = Tokens.estimate(signature);
+            if (used + tokens > tokenBudget) {
+                omitted.add(name);
+                continue;
+            }
+            used += tokens;
+            out.append(signature).append('\n');
+        }
+        if (!omitted.isEmpty()) out.append("// Not shown to fit the prompt budget: ").append(String.join(", ", omitted)).append('\n');
+        return out.toString().trim();
+    }
+
+    // ── collaborator discovery (cached per CUT) ─────────────────────────────────
+
+    private List<String> collaborators(PsiClass cut) {
+        return CachedValuesManager.getManager(project).getCachedValue(cut, COLLABORATORS,
+                () -> CachedValueProvider.Result.create(findCollaborators(cut), cut.getContainingFile()), false);
+    }
+
+    private List<String> findCollaborators(PsiClass cut) {
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        Map<String, Integer> weight = new HashMap<>();
+        cut.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitReferenceElement(@NotNull PsiJavaCodeReferenceElement reference) {
+                super.visitReferenceElement(reference);
+                if (!(reference.resolve() instanceof PsiClass type) || !isProjectType(type, cut, fileIndex)) return;
+                int w = PsiTreeUtil.getParentOfType(reference, PsiField.class) != null || isConstructorParameter(reference)
+                        ? INJECTED_WEIGHT : 1;
+                weight.merge(type.getQualifiedName(), w, Integer::sum);
+            }
+        });
+        return weight.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isProjectType(PsiClass type, PsiClass cut, ProjectFileIndex fileIndex) {
+        if (type.getQualifiedName() == null || type instanceof PsiTypeParameter) return false;
+        if (PsiTreeUtil.isAncestor(cut, type, false)) return false;          // the CUT and its nested classes
+        VirtualFile file = PsiUtilCore.getVirtualFile(type);
+        return file != null && fileIndex.isInSourceContent(file) && !fileIndex.isInTestSourceContent(file);
+    }
+
+    private static boolean isConstructorParameter(PsiElement element) {
+        PsiParameter parameter = PsiTreeUtil.getParentOfType(element, PsiParameter.class);
+        return parameter != null && parameter.getDeclarationScope() instanceof PsiMethod m && m.isConstructor();
+    }
+
+    // ── signature rendering (cached per type) ───────────────────────────────────
+
+    private String signature(PsiClass type) {
+        return CachedValuesManager.getManager(project).getCachedValue(type, SIGNATURE,
+                () -> CachedValueProvider.Result.create(render(type), type.getContainingFile()), false);
+    }
+
+    private static String render(PsiClass type) {
+        StringBuilder out = new StringBuilder();
+        out.append(kind(type)).append(' ').append(type.getQualifiedName()).append(typeParameters(type));
+        if (type.isRecord()) {
+            out.append(Arrays.stream(type.getRecordComponents())
+                    .map(c -> c.getType().getPresentableText() + " " + c.getName())
+                    .collect(Collectors.joining(", ", "(", ")")));
+        }
+        appendTypes(out, " extends ", type.getExtendsListTypes());
+        appendTypes(out, " implements ", type.getImplementsListTypes());
+        out.append(" {\n");
+
+        if (type.isEnum()) {
+            String constants = Arrays.stream(type.getFields())
+                    .filter(f -> f instanceof PsiEnumConstant)
+                    .map(PsiField::getName)
+                    .collect(Collectors.joining(", "));
+            out.append("    ").append(constants).append(";\n");
+        }
+        for (PsiField field : type.getFields()) {
+            if (field instanceof PsiEnumConstant || !field.hasModifierProperty(PsiModifier.PUBLIC)) continue;
+            out.append("    ").append(field.hasModifierProperty(PsiModifier.STATIC) ? "static " : "")
+                    .append(field.getType().getPresentableText()).append(' ').append(field.getName()).append(";\n");
+        }
+        for (PsiMethod method : type.getMethods()) {
+            if (method.hasModifierProperty(PsiModifier.PRIVATE)) continue;
+            out.append("    ").append(method(method)).append(";\n");
+        }
+        return out.append("}").toString();
+    }
+
+    private static String kind(PsiClass type) {
+        if (type.isAnnotationType()) return "@interface";
+        if (type.isInterface())      return "interface";
+        if (type.isEnum())           return "enum";
+        if (type.isRecord())         return "record";
+        return type.hasModifierProperty(PsiModifier.ABSTRACT) ? "abstract class" : "class";
+    }
+
+    private static String typeParameters(PsiTypeParameterListOwner owner) {
+        PsiTypeParameter[] params = owner.getTypeParameters();
+        if (params.length == 0) return "";
+        return Arrays.stream(params).map(PsiTypeParameter::getName).collect(Collectors.joining(", ", "<", ">"));
+    }
+
+    private static void appendTypes(StringBuilder out, String keyword, PsiClassType[] types) {
+        if (types.length == 0) return;
+        out.append(keyword).append(Arrays.stream(types).map(PsiType::getPresentableText).collect(Collectors.joining(", ")));
+    }
+
+    private static String method(PsiMethod method) {
+        StringBuilder out = new StringBuilder();
+        if (method.hasModifierProperty(PsiModifier.STATIC)) out.append("static ");
+        String typeParams = typeParameters(method);
+        if (!typeParams.isEmpty()) out.append(typeParams).append(' ');
+        PsiType returnType = method.getReturnType();
+        if (returnType != null) out.append(returnType.getPresentableText()).append(' ');
+        out.append(method.getName());
+        out.append(Arrays.stream(method.getParameterList().getParameters())
+                .map(p -> p.getType().getPresentableText() + " " + p.getName())
+                .collect(Collectors.joining(", ", "(", ")")));
+        PsiClassType[] thrown = method.getThrowsList().getReferencedTypes();
+        if (thrown.length > 0) {
+            out.append(" throws ").append(Arrays.stream(thrown).map(PsiType::getPresentableText).collect(Collectors.joining(", ")));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Project-level front for {@link CoverageJacocoUtil#compileJUnitClasses}: test classes that become
+ * ready to compile at about the same time share one build instead of one build each.
+ * At most {@code maxParallelCompiles} builds run at once.
+ */
+public final class CompileBatcher {
+
+    private static final long WINDOW_MS = 300;
+    private static final int  MAX_BATCH = 50;
+
+    private final RequestBatcher<VirtualFile, String> batcher;
+
+    public CompileBatcher(Project project) {
+        this.batcher = new RequestBatcher<>(WINDOW_MS, MAX_BATCH,
+                files -> CoverageJacocoUtil.compileJUnitClasses(project, files),
+                () -> AISettings.getInstance().getMaxParallelCompiles());
+    }
+
+    public static CompileBatcher getInstance(Project project) {
+        return project.getService(CompileBatcher.class);
+    }
+
+    /** Completes with "" on success, the file's error text otherwise. */
+    public @NotNull CompletableFuture<String> compile(@NotNull PsiClass testClass) {
+        VirtualFile file = ReadAction.compute(() -> testClass.getContainingFile().getVirtualFile());
+        return batcher.submit(file).exceptionally(error -> "COMPILATION_FAILED\n" + error);
+    }
+}
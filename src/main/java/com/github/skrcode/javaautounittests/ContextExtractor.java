@@ -1,19 +1,168 @@
 package com.github.skrcode.javaautounittests;
 
-import com.intellij.psi.PsiClass;
+import com.github.skrcode.javaautounittests.llm.Tokens;
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
 
-/** Stripped-down extractor – no explicit dependencies list. */
+import java.util.*;
+
+/**
+ * Builds the class-under-test part of the prompt. The CUT is rendered without comments, Javadoc or
+ * other top-level classes of its file; if that still exceeds the configured token budget, method
+ * bodies are elided – private ones first, then package-private, protected and public, largest first –
+ * then private methods are dropped, and only then is the text cut. Whatever was left out is listed in
+ * a header so the model knows it exists.
+ * <p>
+ * The signatures of the project types the CUT uses come from {@link CollaboratorIndex}.
+ * <p>
+ * Callers must hold a read action.
+ */
 public final class ContextExtractor {
 
+    private static final String ELIDED_BODY = "{ /* … */ }";
+    /** Collaborator signatures get up to a quarter of the CUT's budget on top of it. */
+    private static final int COLLABORATOR_SHARE = 4;
+
     /* ---------------- PUBLIC API ---------------- */
 
     public static ContextModel buildContext(@NotNull PsiClass cut) {
         ContextModel ctx = new ContextModel();
         ctx.qualifiedName = cut.getQualifiedName();
-        ctx.fullSource    = cut.getContainingFile().getText();
+        int budget = AISettings.getInstance().getContextTokenBudget();
+        ctx.fullSource    = compactSource(cut, budget);
+        ctx.collaborators = CollaboratorIndex.getInstance(cut.getProject()).signaturesFor(cut, budget / COLLABORATOR_SHARE);
         return ctx;
     }
 
+    static @NotNull String compactSource(@NotNull PsiClass cut, int tokenBudget) {
+        String header = fileHeader(cut.getContainingFile());
+        Set<PsiMethod> elided = new HashSet<>();
+        Set<PsiMethod> dropped = new HashSet<>();
+
+        String body = render(cut, elided, dropped);
+        if (fits(header + body, tokenBudget)) return header + body;
+
+        // elide bodies until the size (in chars, at this class's chars-per-token ratio) fits, then render once
+        int size = header.length() + body.length();
+        int maxChars = charsFor(header + body, tokenBudget);
+        for (PsiMethod method : elisionOrder(cut)) {
+            if (size <= maxChars) break;
+            size -= render(method.getBody(), elided, dropped).length() - ELIDED_BODY.length();
+            elided.add(method);
+        }
+        String text = header + summary(elided, dropped) + render(cut, elided, dropped);
+        if (fits(text, tokenBudget)) return text;
+
+        for (PsiMethod method : PsiTreeUtil.findChildrenOfType(cut, PsiMethod.class)) {
+            if (method.hasModifierProperty(PsiModifier.PRIVATE)) dropped.add(method);
+        }
+        text = header + summary(elided, dropped) + render(cut, elided, dropped);
+        if (fits(text, tokenBudget)) return text;
+        return text.substring(0, charsFor(text, tokenBudget)) + "\n// … truncated to fit the prompt budget\n";
+    }
+
+    /* ---------------- RENDERING ---------------- */
+
+    private static String fileHeader(PsiFile file) {
+        if (!(file instanceof PsiJavaFile javaFile)) return "";
+        StringBuilder out = new StringBuilder();
+        if (javaFile.getPackageStatement() != null) out.append(javaFile.getPackageStatement().getText()).append("\n\n");
+        PsiImportList imports = javaFile.getImportList();
+        if (imports != null) {
+            for (PsiImportStatementBase stmt : imports.getAllImportStatements()) out.append(stmt.getText()).append('\n');
+            if (imports.getAllImportStatements().length > 0) out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String render(PsiElement root, Set<PsiMethod> elided, Set<PsiMethod> dropped) {
+        StringBuilder out = new StringBuilder();
+        append(root, elided, dropped, out);
+        return normalizeBlankLines(out);
+    }
+
+    private static void append(PsiElement e, Set<PsiMethod> elided, Set<PsiMethod> dropped, StringBuilder out) {
+        if (e instanceof PsiComment) return;                          // includes Javadoc
+        if (e instanceof PsiMethod m && dropped.contains(m)) return;
+        if (e instanceof PsiCodeBlock && e.getParent() instanceof PsiMethod m && elided.contains(m)) {
+            out.append(ELIDED_BODY);
+            return;
+        }
+        PsiElement child = e.getFirstChild();
+        if (child == null) {
+            out.append(e.getText());
+            return;
+        }
+        for (; child != null; child = child.getNextSibling()) append(child, elided, dropped, out);
+    }
+
+    /** Strips trailing blanks and collapses the empty lines that removed comments leave behind. */
+    private static String normalizeBlankLines(CharSequence text) {
+        StringBuilder out = new StringBuilder(text.length());
+        boolean previousBlank = false;
+        for (String line : text.toString().split("\n")) {
+            String trimmed = line.stripTrailing();
+            boolean blank = trimmed.isEmpty();
+            if (blank && previousBlank) continue;
+            out.append(trimmed).append('\n');
+            previousBlank = blank;
+        }
+        return out.toString();
+    }
+
+    /* ---------------- BUDGETING ---------------- */
+
+    private static boolean fits(String text, int tokenBudget) {
+        return Tokens.estimate(text) <= tokenBudget;
+    }
+
+    /** How many characters of {@code text} make up about {@code tokenBudget} tokens. */
+    private static int charsFor(String text, int tokenBudget) {
+        long tokens = Math.max(1, Tokens.estimate(text));
+        return (int) Math.min(text.length(), (long) tokenBudget * text.length() / tokens);
+    }
+
+    /**
+     * Methods with bodies, least important first: by visibility, then largest body first. Methods of
+     * anonymous and local classes go with the body that contains them.
+     */
+    private static List<PsiMethod> elisionOrder(PsiClass cut) {
+        List<PsiMethod> methods = new ArrayList<>();
+        for (PsiMethod m : PsiTreeUtil.findChildrenOfType(cut, PsiMethod.class)) {
+            if (m.getBody() != null && PsiTreeUtil.getParentOfType(m, PsiMethod.class, true) == null) methods.add(m);
+        }
+        methods.sort(Comparator.comparingInt(ContextExtractor::visibilityRank)
+                .thenComparing(m -> -m.getBody().getTextLength()));
+        return methods;
+    }
+
+    private static int visibilityRank(PsiMethod m) {
+        if (m.hasModifierProperty(PsiModifier.PRIVATE))   return 0;
+        if (m.hasModifierProperty(PsiModifier.PROTECTED)) return 2;
+        if (m.hasModifierProperty(PsiModifier.PUBLIC))    return 3;
+        return 1;                                                     // package-private
+    }
+
+    private static String summary(Set<PsiMethod> elided, Set<PsiMethod> dropped) {
+        StringBuilder out = new StringBuilder();
+        List<String> bodiesOnly = elided.stream().filter(m -> !dropped.contains(m)).map(ContextExtractor::signature).sorted().toList();
+        if (!bodiesOnly.isEmpty()) {
+            out.append("// Bodies omitted to fit the prompt budget: ").append(String.join(", ", bodiesOnly)).append('\n');
+        }
+        List<String> removed = dropped.stream().map(ContextExtractor::signature).sorted().toList();
+        if (!removed.isEmpty()) {
+            out.append("// Private methods not shown: ").append(String.join(", ", removed)).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String signature(PsiMethod m) {
+        StringJoiner params = new StringJoiner(", ", m.getName() + "(", ")");
+        for (PsiParameter p : m.getParameterList().getParameters()) params.add(p.getType().getPresentableText());
+        return params.toString();
+    }
+
     private ContextExtractor() {}
-}
\ No newline at end of file
+}
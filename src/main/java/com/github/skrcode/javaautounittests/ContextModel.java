@@ -6,4 +6,6 @@ public class ContextModel {
     public String errorMessage;
     public String outputCoverage;
     public String existingTestSource;
+    public String failingMethods;
+    public String collaborators;
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jacoco.agent.AgentJar;
+import org.jacoco.core.JaCoCo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * The JaCoCo runtime agent that test JVMs are started with. The agent jar ships inside
+ * {@code org.jacoco.agent} and is extracted once per JaCoCo version into the IDE system directory.
+ * Every method degrades to "no coverage" ({@code null}) instead of failing the test run.
+ */
+final class CoverageAgent {
+
+    private static final Logger LOG = Logger.getInstance(CoverageAgent.class);
+
+    private static Path agentJar;          // guarded by CoverageAgent.class
+    private static boolean unavailable;    // guarded by CoverageAgent.class
+
+    /** A fresh, not yet existing exec file for one test run; {@code null} if coverage is unavailable. */
+    static @Nullable Path newExecFile() {
+        if (jar() == null) return null;
+        return JAIPilotPaths.systemDir("coverage").resolve(UUID.randomUUID() + ".exec");
+    }
+
+    /**
+     * {@code -javaagent} option for a one-shot test JVM that dumps to {@code execFile} on exit and only
+     * instruments the given classes under test (binary names, nested classes included).
+     */
+    static @Nullable String vmOption(@Nullable Path execFile, @NotNull Collection<String> classesUnderTest) {
+        Path jar = jar();
+        if (jar == null || execFile == null || classesUnderTest.isEmpty()) return null;
+        String includes = classesUnderTest.stream().map(c -> c + "*").collect(Collectors.joining(":"));
+        return "-javaagent:" + quote(jar + "=destfile=" + execFile + ",includes=" + includes
+                + ",append=false,dumponexit=true,output=file");
+    }
+
+    /**
+     * {@code -javaagent} option for a {@link WarmTestRunner} daemon: it never writes a file by itself,
+     * the runner resets and dumps the execution data around each request. Meant for
+     * {@code ParametersList.add}, so it is not quoted.
+     */
+    static @Nullable String daemonVmOption() {
+        Path jar = jar();
+        return jar == null ? null : "-javaagent:" + jar + "=output=none,dumponexit=false";
+    }
+
+    private static synchronized @Nullable Path jar() {
+        if (agentJar != null || unavailable) return agentJar;
+        try {
+            Path target = JAIPilotPaths.systemDir("jacoco").resolve("jacocoagent-" + JaCoCo.VERSION + ".jar");
+            if (!Files.isRegularFile(target)) {
+                Path tmp = Files.createTempFile(target.getParent(), "jacocoagent", ".tmp");
+                AgentJar.extractTo(tmp.toFile());
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            agentJar = target;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("JAIPilot: cannot extract the JaCoCo agent, coverage is disabled", e);
+            unavailable = true;
+        }
+        return agentJar;
+    }
+
+    private static String quote(String s) {
+        return s.indexOf(' ') >= 0 ? '"' + s + '"' : s;
+    }
+
+    private CoverageAgent() {}
+}
@@ -15,10 +15,13 @@ import com.intellij.execution.runners.ProgramRunner;
 import com.intellij.execution.ui.RunContentDescriptor;
 import com.intellij.ide.DataManager;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.compiler.CompilerManager;
 import com.intellij.openapi.compiler.CompilerMessage;
 import com.intellij.openapi.compiler.CompilerMessageCategory;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
@@ -28,140 +31,193 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.util.Consumer;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.messages.MessageBusConnection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.CountDownLatch;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
- * Compiles a JUnit test class, runs it with coverage, and returns:
- *   • ""  → everything succeeded
- *   • compilation errors if compilation failed
- *   • console output if test execution failed (non-zero exit or test failures)
+ * Compiles JUnit test classes and runs them with coverage. Both operations only schedule work on the
+ * EDT and return at once; their futures are completed from the compiler callback and from the test
+ * process' termination, so no thread is parked while a build or a test JVM runs.
  */
 public class CoverageJacocoUtil {
 
     private CoverageJacocoUtil() {}
 
-    public static @NotNull String executeJUnitClass(Project project, PsiClass testClass) {
+    /**
+     * Runs several test classes of one module in a single JUnit run (pattern test kind), so the
+     * JVM starts once per batch instead of once per class. The {@code ##teamcity[...]} output is
+     * turned into a report per class by {@link TeamCityFailureRouter}.
+     *
+     * @param coverageAgent optional {@code -javaagent} VM option (see {@link CoverageAgent#vmOption})
+     * @return completes, once the test JVM has exited, with the report of each qualified class name
+     */
+    public static @NotNull CompletableFuture<Map<String, TestReport>> executeJUnitClasses(Project project, Module module,
+                                                                                     List<String> qualifiedNames,
+                                                                                     @Nullable String coverageAgent) {
 
         // ── shared state (safe to create off-EDT) ────────────────────────────────
-        StringBuilder  failures = new StringBuilder();
-        CountDownLatch done     = new CountDownLatch(1);
-        Pattern TEAMCITY_FAIL   = Pattern.compile("^##teamcity\\[testFailed");
-
-        ApplicationManager.getApplication().invokeAndWait(() -> {
-
-            // 1 ── flush unsaved edits *on the EDT*
-            PsiDocumentManager.getInstance(project).commitAllDocuments();
-            FileDocumentManager.getInstance().saveAllDocuments();
-
-            // 2 ── build a transient JUnit run-config
-            ConfigurationFactory factory =
-                    JUnitConfigurationType.getInstance().getConfigurationFactories()[0];
-
-            RunnerAndConfigurationSettings settings =
-                    RunManager.getInstance(project).createConfiguration(testClass.getName(), factory);
-
-            JUnitConfiguration cfg = (JUnitConfiguration) settings.getConfiguration();
-            cfg.setModule(ModuleUtilCore.findModuleForPsiElement(testClass));
-            cfg.setMainClass(testClass);
-
-            Executor executor = DefaultRunExecutor.getRunExecutorInstance();
-
-            // 3 ── hook a listener that fires when *this* run starts
-            MessageBusConnection conn = project.getMessageBus().connect();
-            conn.subscribe(ExecutionManager.EXECUTION_TOPIC, new ExecutionListener() {
-                @Override
-                public void processStarted(@NotNull String executorId,
-                                           @NotNull ExecutionEnvironment env,
-                                           @NotNull ProcessHandler handler) {
-                    if (env.getRunProfile() != cfg) return;   // not our run
-
-                    handler.addProcessListener(new ProcessAdapter() {
-                        @Override
-                        public void onTextAvailable(@NotNull ProcessEvent e, @NotNull Key outputType) {
-                            String txt = e.getText().trim();
-                            if (TEAMCITY_FAIL.matcher(txt).find()) {
-                                failures.append(txt.replace("|n", "\n")
-                                                .replace("|r", "\r"))
-                                        .append('\n');
+        TeamCityFailureRouter router = new TeamCityFailureRouter(qualifiedNames);
+        CompletableFuture<Map<String, TestReport>> result = new CompletableFuture<>();
+        AtomicReference<ProcessHandler> process = new AtomicReference<>();
+        AtomicReference<MessageBusConnection> connection = new AtomicReference<>();
+
+        ApplicationManager.getApplication().invokeLater(() -> {
+            try {
+                // 1 ── flush unsaved edits *on the EDT*
+                PsiDocumentManager.getInstance(project).commitAllDocuments();
+                FileDocumentManager.getInstance().saveAllDocuments();
+
+                // 2 ── build a transient JUnit run-config covering the whole batch
+                ConfigurationFactory factory =
+                        JUnitConfigurationType.getInstance().getConfigurationFactories()[0];
+
+                RunnerAndConfigurationSettings settings = RunManager.getInstance(project).createConfiguration(
+                        qualifiedNames.size() == 1 ? qualifiedNames.get(0) : "JAIPilot batch (" + qualifiedNames.size() + " classes)",
+                        factory);
+
+                JUnitConfiguration cfg = (JUnitConfiguration) settings.getConfiguration();
+                cfg.setModule(module);
+                JUnitConfiguration.Data data = cfg.getPersistentData();
+                data.TEST_OBJECT = JUnitConfiguration.TEST_PATTERN;
+                // patterns are regular expressions: unquoted, "." and "$" in class names match more than intended
+                data.setPatterns(qualifiedNames.stream().map(Pattern::quote).collect(Collectors.toCollection(LinkedHashSet::new)));
+                if (coverageAgent != null) {
+                    String vmParameters = cfg.getVMParameters();
+                    cfg.setVMParameters(vmParameters == null || vmParameters.isBlank() ? coverageAgent : vmParameters + " " + coverageAgent);
+                }
+
+                Executor executor = DefaultRunExecutor.getRunExecutorInstance();
+
+                // 3 ── hook a listener that fires when *this* run starts
+                MessageBusConnection conn = project.getMessageBus().connect();
+                connection.set(conn);
+                conn.subscribe(ExecutionManager.EXECUTION_TOPIC, new ExecutionListener() {
+                    @Override
+                    public void processStarted(@NotNull String executorId,
+                                               @NotNull ExecutionEnvironment env,
+                                               @NotNull ProcessHandler handler) {
+                        if (env.getRunProfile() != cfg) return;   // not our run
+                        process.set(handler);
+
+                        handler.addProcessListener(new ProcessAdapter() {
+                            @Override
+                            public void onTextAvailable(@NotNull ProcessEvent e, @NotNull Key outputType) {
+                                router.accept(e.getText());
                             }
-                        }
 
-                        @Override
-                        public void processTerminated(@NotNull ProcessEvent e) {
-                            done.countDown();
-                            conn.disconnect();
-                        }
-                    });
-                }
+                            @Override
+                            public void processTerminated(@NotNull ProcessEvent e) {
+                                result.complete(router.reportsByClass());
+                            }
+                        });
+                    }
 
-                @Override
-                public void processNotStarted(@NotNull String executorId,
-                                              @NotNull ExecutionEnvironment env) {
-                    if (env.getRunProfile() == cfg) {
-                        failures.append("ERROR: test JVM did not start\n");
-                        done.countDown();
-                        conn.disconnect();
+                    @Override
+                    public void processNotStarted(@NotNull String executorId,
+                                                  @NotNull ExecutionEnvironment env) {
+                        if (env.getRunProfile() == cfg) {
+                            router.failAll("ERROR: test JVM did not start");
+                            result.complete(router.reportsByClass());
+                        }
                     }
-                }
-            });
+                });
 
-            // 4 ── launch (2-arg overload that exists in your SDK)
-            ExecutionUtil.runConfiguration(settings, executor);
+                // 4 ── launch (2-arg overload that exists in your SDK)
+                ExecutionUtil.runConfiguration(settings, executor);
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
         });
 
-        // 5 ── wait ≤ 5 min for test JVM to exit
-        try {
-            if (!done.await(5, TimeUnit.MINUTES))
-                return "ERROR: test execution timed out";
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            return "ERROR: interrupted while waiting for tests";
-        }
+        // 5 ── give up after 5 min (plus a little per extra class) and stop the test JVM
+        ScheduledFuture<?> timeout = AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+            router.failAll("ERROR: test execution timed out");
+            if (result.complete(router.reportsByClass()) && process.get() != null) process.get().destroyProcess();
+        }, 300 + 30L * (qualifiedNames.size() - 1), TimeUnit.SECONDS);
 
-        return failures.length() == 0 ? "" : failures.toString();
+        return result.whenComplete((failures, error) -> {
+            timeout.cancel(false);
+            MessageBusConnection conn = connection.get();
+            if (conn != null) conn.disconnect();
+        });
     }
 
-
-
-
-    public static String compileJUnitClass(Project project, PsiClass testClass) {
-        CountDownLatch latch = new CountDownLatch(1);
-        StringBuilder result = new StringBuilder();
-        VirtualFile file = testClass.getContainingFile().getVirtualFile();
-
-        ApplicationManager.getApplication().invokeAndWait(() -> {
-            CompilerManager.getInstance(project).compile(new VirtualFile[]{file}, (aborted, errors, warnings, context) -> {
-                if (aborted) {
-                    result.append("COMPILATION_ABORTED");
-                } else if (errors > 0) {
-                    result.append("COMPILATION_FAILED\n");
-                    for (CompilerMessage msg : context.getMessages(CompilerMessageCategory.ERROR)) {
-                        result.append(msg.getMessage()).append('\n');
+    /**
+     * Compiles many generated test files – possibly from different modules – in a single build and
+     * splits the error messages back per file using {@link CompilerMessage#getVirtualFile()}.
+     * Errors that cannot be attributed to one of the requested files (missing file, a broken
+     * dependency) are reported to every file, since they block all of them.
+     *
+     * @return completes from the compiler callback with "" per file on success, otherwise its error text
+     */
+    public static @NotNull CompletableFuture<Map<VirtualFile, String>> compileJUnitClasses(Project project, Collection<VirtualFile> files) {
+        CompletableFuture<Map<VirtualFile, String>> result = new CompletableFuture<>();
+        Set<VirtualFile> requested = new HashSet<>(files);
+
+        ApplicationManager.getApplication().invokeLater(() -> {
+            try {
+                CompilerManager.getInstance(project).compile(files.toArray(VirtualFile.EMPTY_ARRAY), (aborted, errors, warnings, context) -> {
+                    if (aborted) {
+                        result.complete(sameForAll(files, "COMPILATION_ABORTED"));
+                        return;
                     }
-                }
-                latch.countDown();
-            });
+                    Map<VirtualFile, StringBuilder> perFile = new HashMap<>();
+                    StringBuilder shared = new StringBuilder();
+                    if (errors > 0) {
+                        for (CompilerMessage msg : context.getMessages(CompilerMessageCategory.ERROR)) {
+                            VirtualFile vf = msg.getVirtualFile();
+                            StringBuilder target = vf != null && requested.contains(vf)
+                                    ? perFile.computeIfAbsent(vf, k -> new StringBuilder())
+                                    : shared;
+                            target.append(describe(msg)).append('\n');
+                        }
+                    }
+                    Map<VirtualFile, String> results = new LinkedHashMap<>();
+                    for (VirtualFile file : files) {
+                        StringBuilder own = perFile.get(file);
+                        results.put(file, own == null && shared.length() == 0
+                                ? ""
+                                : ("COMPILATION_FAILED\n" + (own == null ? "" : own) + shared).trim());
+                    }
+                    result.complete(results);
+                });
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
         });
 
-        try {
-            if (!latch.await(60, TimeUnit.SECONDS)) {
-                result.append("COMPILATION_TIMEOUT");
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            result.append("COMPILATION_INTERRUPTED");
-        }
+        // one build, but give large batches a little more head-room than a single file
+        ScheduledFuture<?> timeout = AppExecutorUtil.getAppScheduledExecutorService().schedule(
+                () -> result.complete(sameForAll(files, "COMPILATION_TIMEOUT")), 60 + files.size(), TimeUnit.SECONDS);
+        return result.whenComplete((r, error) -> timeout.cancel(false));
+    }
 
-        return result.toString().trim();
+    private static Map<VirtualFile, String> sameForAll(Collection<VirtualFile> files, String status) {
+        Map<VirtualFile, String> results = new LinkedHashMap<>();
+        for (VirtualFile file : files) results.put(file, status);
+        return results;
+    }
+
+    /**
+     * {@code FooTest.java:42: message} (javac style) when the message has a position; continuation lines
+     * are indented so that every diagnostic starts on an unindented line.
+     */
+    private static String describe(CompilerMessage msg) {
+        String text = msg.getMessage().strip().replace("\n", "\n    ");
+        VirtualFile vf = msg.getVirtualFile();
+        if (vf != null && msg.getNavigatable() instanceof OpenFileDescriptor d && d.getLine() >= 0) {
+            return vf.getName() + ":" + (d.getLine() + 1) + ": " + text;
+        }
+        return text;
     }
 }
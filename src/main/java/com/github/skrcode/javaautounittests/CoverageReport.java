@@ -0,0 +1,118 @@
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Line and branch coverage of one class under test (nested and anonymous classes included), as
+ * measured by JaCoCo during a test run. Line numbers refer to the CUT's source file.
+ */
+public record CoverageReport(int coveredLines, int totalLines,
+                             int coveredBranches, int totalBranches,
+                             SortedSet<Integer> missedLines,
+                             SortedSet<Integer> partlyCoveredLines) {
+
+    private static final Logger LOG = Logger.getInstance(CoverageReport.class);
+    private static final int MAX_LISTED_LINES = 60;
+
+    /** Share of covered lines; a class without executable lines counts as fully covered. */
+    public double lineRatio() {
+        return totalLines == 0 ? 1.0 : (double) coveredLines / totalLines;
+    }
+
+    /**
+     * Analyzes {@code execFile} for the class files of {@code binaryName} (e.g. {@code pkg.Outer$Inner})
+     * found in {@code classDir}, the output directory of its package.
+     *
+     * @return {@code null} if there is no execution data or no class file to analyze
+     */
+    static @Nullable CoverageReport analyze(@NotNull Path execFile, @NotNull Path classDir, @NotNull String binaryName) {
+        if (!Files.isRegularFile(execFile) || !Files.isDirectory(classDir)) return null;
+        try {
+            ExecFileLoader loader = new ExecFileLoader();
+            loader.load(execFile.toFile());
+
+            CoverageBuilder builder = new CoverageBuilder();
+            Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), builder);
+            String simpleName = binaryName.substring(binaryName.lastIndexOf('.') + 1);
+            boolean found = false;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(classDir, simpleName + "*.class")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (!name.equals(simpleName + ".class") && !name.startsWith(simpleName + "$")) continue;
+                    try (InputStream in = Files.newInputStream(file)) {
+                        analyzer.analyzeClass(in, file.toString());
+                    }
+                    found = true;
+                }
+            }
+            return found ? of(builder) : null;
+        } catch (IOException e) {
+            LOG.info("JAIPilot: cannot analyze coverage of " + binaryName, e);
+            return null;
+        }
+    }
+
+    private static CoverageReport of(CoverageBuilder builder) {
+        int coveredLines = 0, totalLines = 0, coveredBranches = 0, totalBranches = 0;
+        SortedSet<Integer> missed = new TreeSet<>();
+        SortedSet<Integer> partly = new TreeSet<>();
+        for (IClassCoverage cls : builder.getClasses()) {
+            coveredLines    += cls.getLineCounter().getCoveredCount();
+            totalLines      += cls.getLineCounter().getTotalCount();
+            coveredBranches += cls.getBranchCounter().getCoveredCount();
+            totalBranches   += cls.getBranchCounter().getTotalCount();
+            for (int line = cls.getFirstLine(); line > 0 && line <= cls.getLastLine(); line++) {
+                switch (cls.getLine(line).getStatus()) {
+                    case ICounter.NOT_COVERED    -> missed.add(line);
+                    case ICounter.PARTLY_COVERED -> partly.add(line);
+                    default -> { }
+                }
+            }
+        }
+        return new CoverageReport(coveredLines, totalLines, coveredBranches, totalBranches, missed, partly);
+    }
+
+    /** Summary for the {@code {{outputCoverage}}} prompt placeholder, quoting the uncovered source lines. */
+    public @NotNull String describe(@NotNull String cutSource) {
+        String[] lines = cutSource.split("\n", -1);
+        StringBuilder out = new StringBuilder()
+                .append("Line coverage ").append(percent(coveredLines, totalLines))
+                .append(", branch coverage ").append(percent(coveredBranches, totalBranches)).append('\n');
+        appendLines(out, "Lines never executed:", missedLines, lines);
+        appendLines(out, "Lines with branches never taken:", partlyCoveredLines, lines);
+        return out.toString().trim();
+    }
+
+    private static void appendLines(StringBuilder out, String title, SortedSet<Integer> numbers, String[] source) {
+        if (numbers.isEmpty()) return;
+        out.append(title).append('\n');
+        int listed = 0;
+        for (int n : numbers) {
+            if (listed++ == MAX_LISTED_LINES) {
+                out.append("  … ").append(numbers.size() - MAX_LISTED_LINES).append(" more\n");
+                break;
+            }
+            String text = n <= source.length ? source[n - 1].trim() : "";
+            out.append("  L").append(n).append(": ").append(text).append('\n');
+        }
+    }
+
+    private static String percent(int covered, int total) {
+        return total == 0 ? "n/a" : (100 * covered / total) + "% (" + covered + "/" + total + ")";
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.CompilerModuleExtension;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.util.ClassUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Project-level front for {@link CoverageJacocoUtil#executeJUnitClasses}: generated test classes
+ * that are ready to run at about the same time share one test JVM per module – or, when enabled,
+ * the module's {@link WarmTestRunner} daemon. At most {@code maxParallelExecutions} batches run at once.
+ * <p>
+ * Every run carries the JaCoCo agent, restricted to the batch's classes under test, and each passing
+ * test class gets the coverage of its own CUT back. Tests of a batch share one JVM, so a CUT may
+ * also be credited with lines that another batch member's tests happened to execute.
+ * <p>
+ * Waiting for a test JVM holds no thread; only talking to a warm daemon and analysing coverage run
+ * on the application pool.
+ */
+public final class ExecutionBatcher {
+
+    private static final long WINDOW_MS = 500;
+    private static final int  MAX_BATCH = 25;
+
+    /** Test outcome; {@code coverage} only if all tests passed, and only if measured. */
+    public record Result(@NotNull TestReport tests, @Nullable CoverageReport coverage) {}
+
+    /** @param cutClassDir output directory of the CUT's package, {@code null} if unknown */
+    private record TestTarget(Module module, String qualifiedName, String cutBinaryName, @Nullable Path cutClassDir) {}
+
+    private static final Executor POOL = AppExecutorUtil.getAppExecutorService();
+
+    private final RequestBatcher<TestTarget, Result> batcher;
+
+    public ExecutionBatcher(Project project) {
+        this.batcher = new RequestBatcher<>(WINDOW_MS, MAX_BATCH,
+                targets -> runByModule(project, targets),
+                () -> AISettings.getInstance().getMaxParallelExecutions());
+    }
+
+    public static ExecutionBatcher getInstance(Project project) {
+        return project.getService(ExecutionBatcher.class);
+    }
+
+    public @NotNull CompletableFuture<Result> execute(@NotNull PsiClass testClass, @NotNull PsiClass cut) {
+        TestTarget target = ReadAction.compute(() -> {
+            String cutBinaryName = ClassUtil.getJVMClassName(cut);
+            return new TestTarget(ModuleUtilCore.findModuleForPsiElement(testClass), testClass.getQualifiedName(),
+                    cutBinaryName, classDir(ModuleUtilCore.findModuleForPsiElement(cut), cutBinaryName));
+        });
+        return batcher.submit(target).exceptionally(error -> new Result(TestReport.error("ERROR: " + error), null));
+    }
+
+    private static CompletableFuture<Map<TestTarget, Result>> runByModule(Project project, List<TestTarget> targets) {
+        Map<Module, List<TestTarget>> byModule = new LinkedHashMap<>();
+        for (TestTarget t : targets) byModule.computeIfAbsent(t.module(), m -> new ArrayList<>()).add(t);
+
+        Map<TestTarget, Result> results = Collections.synchronizedMap(new HashMap<>());
+        List<CompletableFuture<?>> modules = new ArrayList<>();
+        byModule.forEach((module, moduleTargets) -> {
+            List<String> names = moduleTargets.stream().map(TestTarget::qualifiedName).toList();
+            Path execFile = CoverageAgent.newExecFile();
+            CompletableFuture<Map<String, TestReport>> warm = AISettings.getInstance().isUseWarmRunner()
+                    ? CompletableFuture.supplyAsync(() -> WarmTestRunner.getInstance(project).execute(module, names, execFile), POOL)
+                    : CompletableFuture.completedFuture(null);
+            modules.add(warm
+                    .thenCompose(reports -> reports != null
+                            ? CompletableFuture.completedFuture(reports)
+                            : CoverageJacocoUtil.executeJUnitClasses(project, module, names, CoverageAgent.vmOption(execFile,
+                                    moduleTargets.stream().map(TestTarget::cutBinaryName).toList())))
+                    .thenAcceptAsync(reports -> {
+                        for (TestTarget t : moduleTargets) {
+                            TestReport report = reports.get(t.qualifiedName());
+                            if (report == null) report = TestReport.error(TestReport.noTestsRun(t.qualifiedName()));
+                            CoverageReport coverage = report.passed() && execFile != null && t.cutClassDir() != null
+                                    ? CoverageReport.analyze(execFile, t.cutClassDir(), t.cutBinaryName())
+                                    : null;
+                            results.put(t, new Result(report, coverage));
+                        }
+                    }, POOL)
+                    .whenComplete((done, error) -> deleteQuietly(execFile)));
+        });
+        return CompletableFuture.allOf(modules.toArray(CompletableFuture[]::new)).thenApply(done -> results);
+    }
+
+    private static @Nullable Path classDir(@Nullable Module module, String binaryName) {
+        if (module == null) return null;
+        CompilerModuleExtension ext = CompilerModuleExtension.getInstance(module);
+        String outputUrl = ext == null ? null : ext.getCompilerOutputUrl();
+        if (outputUrl == null) return null;
+        int dot = binaryName.lastIndexOf('.');
+        Path dir = Path.of(VfsUtilCore.urlToPath(outputUrl));
+        return dot < 0 ? dir : dir.resolve(binaryName.substring(0, dot).replace('.', '/'));
+    }
+
+    private static void deleteQuietly(@Nullable Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.llm.Tokens;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Shrinks compiler and test output to what the model needs to repair a test, before it becomes the
+ * {@code {{erroroutput}}} of the next prompt:
+ * <ul>
+ *   <li>identical diagnostics are reported once, with all their line numbers;</li>
+ *   <li>stack traces keep their exception lines and the frames of the test class and the CUT's
+ *       package; runs of other frames (JUnit, Mockito, reflection) collapse into one line;</li>
+ *   <li>tests that fail the same way are listed together under one trace;</li>
+ *   <li>the test source line a diagnostic or frame points at is shown below it;</li>
+ *   <li>the result is cut at {@value #MAX_TOKENS} tokens, whole entries at a time; a first entry that
+ *       alone exceeds the budget keeps only its head.</li>
+ * </ul>
+ * {@link FailureLocator} still works on the raw output; only the prompt gets the distilled text.
+ */
+final class FailureDistiller {
+
+    static final int MAX_TOKENS = 2_000;
+
+    private static final String  COMPILATION_FAILED = "COMPILATION_FAILED";
+    private static final String  TRUNCATED = "\n… [truncated]";
+    private static final Pattern DIAGNOSTIC = Pattern.compile("^(\\S+\\.java):(\\d+): (.*)$");
+    private static final Pattern FRAME      = Pattern.compile("^\\s*at (?:[\\w.]+/)*([\\w$.]+)\\.[\\w$<>]+\\(([^:)]+)(?::(\\d+))?\\)\\s*$");
+    private static final Pattern MORE       = Pattern.compile("^\\s*\\.\\.\\. \\d+ more\\s*$");
+    private static final int     MAX_LINES_PER_DIAGNOSTIC = 3;
+
+    /**
+     * @param errors     output of the project build or {@link InMemoryCompiler}
+     * @param testSource the source the errors refer to, for quoting lines; {@code null} if unknown
+     */
+    static @NotNull String compileErrors(@NotNull String errors, @NotNull String testFileName, @Nullable String testSource) {
+        if (!errors.startsWith(COMPILATION_FAILED)) return errors;       // aborted, timed out: nothing to distill
+        String[] source = lines(testSource);
+
+        // the same message and details in the same file are one entry, with all their line numbers
+        Map<Diagnostic, List<Integer>> distinct = new LinkedHashMap<>();
+        for (Diagnostic d : diagnostics(errors)) {
+            List<Integer> numbers = distinct.computeIfAbsent(new Diagnostic(d.file(), 0, d.text()), k -> new ArrayList<>());
+            if (d.line() > 0) numbers.add(d.line());
+        }
+
+        List<String> entries = new ArrayList<>();
+        distinct.forEach((d, numbers) -> {
+            StringBuilder entry = new StringBuilder();
+            if (d.file() != null && !numbers.isEmpty()) {
+                entry.append(d.file()).append(':').append(joinLines(numbers));
+                if (numbers.size() > 1) entry.append(" (").append(numbers.size()).append("x)");
+                entry.append(": ");
+            }
+            entry.append(d.text()).append('\n');
+            if (testFileName.equals(d.file())) {
+                numbers.stream().distinct().limit(MAX_LINES_PER_DIAGNOSTIC).forEach(n -> quote(entry, source, n, "    "));
+            }
+            entries.add(entry.toString());
+        });
+        int total = distinct.values().stream().mapToInt(n -> Math.max(1, n.size())).sum();
+        String header = COMPILATION_FAILED + " (" + total + " error(s)" + (entries.size() < total ? ", " + entries.size() + " distinct" : "") + ")\n";
+        return fit(header, entries, "error(s)");
+    }
+
+    /** @param line 1-based, {@code 0} if the diagnostic has no position */
+    private record Diagnostic(@Nullable String file, int line, String text) {}
+
+    /** Each unindented line starts a diagnostic; indented lines after it are its details. */
+    private static List<Diagnostic> diagnostics(String errors) {
+        List<Diagnostic> out = new ArrayList<>();
+        String file = null, text = null;
+        int line = 0;
+        for (String raw : errors.split("\n")) {
+            if (raw.isBlank() || raw.equals(COMPILATION_FAILED)) continue;
+            if (raw.startsWith(" ") && text != null) {
+                text += "\n" + raw.stripTrailing();
+                continue;
+            }
+            if (text != null) out.add(new Diagnostic(file, line, text));
+            Matcher m = DIAGNOSTIC.matcher(raw);
+            file = m.matches() ? m.group(1) : null;
+            line = m.matches() ? Integer.parseInt(m.group(2)) : 0;
+            text = m.matches() ? m.group(3) : raw.strip();
+        }
+        if (text != null) out.add(new Diagnostic(file, line, text));
+        return out;
+    }
+
+    /**
+     * @param testSource the source of the test class that ran, for quoting lines; {@code null} if unknown
+     * @param cutName    qualified name of the class under test; frames in its package are kept
+     */
+    static @NotNull String testFailures(@NotNull TestReport report, @NotNull String testFileName,
+                                        @Nullable String testSource, @NotNull String cutName) {
+        if (report.passed()) return "";
+        String[] source = lines(testSource);
+        int dot = cutName.lastIndexOf('.');
+        String cutPackage = dot < 0 ? "" : cutName.substring(0, dot + 1);
+
+        // tests failing with the same message and trace (apart from their own frames) share one entry
+        Map<String, List<TestResult>> groups = new LinkedHashMap<>();
+        Map<String, String> traces = new HashMap<>();
+        for (TestResult t : report.failed()) {
+            String signature = t.status() + "\n" + t.message() + "\n" + t.trace().lines()
+                    .filter(l -> !l.contains("(" + testFileName + ":"))
+                    .collect(Collectors.joining("\n"));
+            groups.computeIfAbsent(signature, k -> new ArrayList<>()).add(t);
+            traces.computeIfAbsent(signature, k -> distillTrace(t.trace(), testFileName, cutPackage, source));
+        }
+
+        List<String> entries = new ArrayList<>();
+        groups.forEach((signature, tests) -> {
+            TestResult first = tests.get(0);
+            StringBuilder entry = new StringBuilder(tests.size() == 1 ? "" : tests.size() + " tests fail the same way:\n");
+            for (TestResult t : tests) {
+                entry.append(t.method() != null ? TestReport.FAILED_TEST_PREFIX + t.method() : TestReport.FAILED_CLASS_PREFIX + t.name());
+                if (t.status() == TestResult.Status.INCOMPLETE) entry.append(" (did not finish)");
+                entry.append('\n');
+            }
+            String trace = traces.get(signature);
+            if (!first.message().isEmpty() && !trace.contains(first.message())) indent(entry, first.message());
+            indent(entry, trace);
+            if (!first.output().isEmpty()) {
+                entry.append("  Output (last lines):\n");
+                indent(entry, lastLines(first.output(), 10));
+            }
+            entries.add(entry.toString());
+        });
+
+        StringBuilder header = new StringBuilder();
+        report.errors().forEach(e -> header.append(e).append('\n'));
+        List<TestResult> failed = report.failed();
+        if (!failed.isEmpty()) {
+            header.append(failed.size()).append(" of ").append(report.tests().size()).append(" test(s) failed");
+            if (groups.size() < failed.size()) header.append(", ").append(groups.size()).append(" distinct failure(s)");
+            header.append('\n');
+        }
+        return fit(header.toString(), entries, "failure(s)");
+    }
+
+    /** Exception lines and test/CUT frames; other frames collapse into one line per run. */
+    private static String distillTrace(String trace, String testFileName, String cutPackage, String[] source) {
+        StringBuilder out = new StringBuilder();
+        int skipped = 0;
+        for (String line : trace.split("\r?\n")) {
+            if (line.isBlank() || MORE.matcher(line).matches()) continue;
+            Matcher frame = FRAME.matcher(line);
+            if (!frame.matches()) {                           // exception, "Caused by:", assertion text
+                skipped = flushSkipped(out, skipped);
+                out.append(line.strip()).append('\n');
+                continue;
+            }
+            boolean inTest = frame.group(2).equals(testFileName);
+            boolean inCut = !cutPackage.isEmpty() && frame.group(1).startsWith(cutPackage)
+                    && frame.group(1).indexOf('.', cutPackage.length()) < 0;
+            if (!inTest && !inCut) {
+                skipped++;
+                continue;
+            }
+            skipped = flushSkipped(out, skipped);
+            out.append("    ").append(line.strip()).append('\n');
+            if (inTest && frame.group(3) != null) quote(out, source, Integer.parseInt(frame.group(3)), "        ");
+        }
+        flushSkipped(out, skipped);
+        return out.toString().stripTrailing();
+    }
+
+    private static int flushSkipped(StringBuilder out, int skipped) {
+        if (skipped > 0) out.append("    ... ").append(skipped).append(" framework frame(s)\n");
+        return 0;
+    }
+
+    /** Header plus as many whole entries as fit into {@link #MAX_TOKENS}; the first one is cut if it alone does not. */
+    private static String fit(String header, List<String> entries, String what) {
+        StringBuilder out = new StringBuilder(header);
+        int tokens = Tokens.estimate(header);
+        for (int i = 0; i < entries.size(); i++) {
+            String entry = entries.get(i);
+            int cost = Tokens.estimate(entry);
+            if (tokens + cost > MAX_TOKENS) {
+                int omitted = entries.size() - i;
+                if (i == 0) {
+                    String head = head(entry, MAX_TOKENS - tokens - Tokens.estimate(TRUNCATED));
+                    if (!head.isEmpty()) {
+                        out.append('\n').append(head).append(TRUNCATED);
+                        omitted--;
+                    }
+                }
+                if (omitted > 0) out.append("\n… ").append(omitted).append(" more ").append(what).append(" omitted\n");
+                break;
+            }
+            out.append('\n').append(entry);
+            tokens += cost;
+        }
+        return out.toString().trim();
+    }
+
+    /** The start of {@code text} within {@code budget} tokens, cut at a line break where possible; "" if none fits. */
+    private static String head(String text, int budget) {
+        if (budget <= 0) return "";
+        int end = (int) Math.min(text.length(), (long) text.length() * budget / Math.max(1, Tokens.estimate(text)));
+        while (end > 0) {
+            int lineEnd = text.lastIndexOf('\n', end);
+            String head = text.substring(0, lineEnd > end / 2 ? lineEnd : end);
+            if (Tokens.estimate(head) <= budget) return head;
+            end = end * 9 / 10;
+        }
+        return "";
+    }
+
+    private static void quote(StringBuilder out, String[] source, int lineNumber, String indent) {
+        if (lineNumber < 1 || lineNumber > source.length) return;
+        String line = source[lineNumber - 1].strip();
+        if (!line.isEmpty()) out.append(indent).append("> ").append(line).append('\n');
+    }
+
+    private static String[] lines(@Nullable String source) {
+        return source == null ? new String[0] : source.split("\r?\n", -1);
+    }
+
+    private static String joinLines(List<Integer> numbers) {
+        StringJoiner joined = new StringJoiner(",");
+        numbers.stream().distinct().limit(10).forEach(n -> joined.add(n.toString()));
+        return numbers.stream().distinct().count() > 10 ? joined + ",…" : joined.toString();
+    }
+
+    private static String lastLines(String text, int count) {
+        String[] lines = text.strip().split("\r?\n");
+        return String.join("\n", Arrays.copyOfRange(lines, Math.max(0, lines.length - count), lines.length));
+    }
+
+    private static void indent(StringBuilder out, String text) {
+        for (String line : text.strip().split("\r?\n")) {
+            if (!line.isBlank()) out.append("  ").append(line).append('\n');
+        }
+    }
+
+    private FailureDistiller() {}
+}
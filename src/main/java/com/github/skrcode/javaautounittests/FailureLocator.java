@@ -0,0 +1,78 @@
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.text.CharArrayUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps compiler diagnostics and failed tests back to the methods of a generated test class, so that
+ * only those methods need to be rewritten. Each lookup answers {@code null} when a surgical repair is
+ * not possible or not worth it – a diagnostic outside any method, a failure without a test name, or
+ * most of the class failing anyway – and the caller regenerates the whole class instead.
+ * <p>
+ * Callers must hold a read action.
+ */
+final class FailureLocator {
+
+    private static final Pattern DIAGNOSTIC  = Pattern.compile("^(\\S+\\.java):(\\d+): ");
+
+    /** Methods containing the compile errors reported by {@link CoverageJacocoUtil#compileJUnitClasses} or {@link InMemoryCompiler}. */
+    static @Nullable Set<String> methodsWithCompileErrors(@NotNull PsiClass testClass, @NotNull String errors) {
+        PsiFile file = testClass.getContainingFile();
+        Document doc = PsiDocumentManager.getInstance(testClass.getProject()).getDocument(file);
+        if (doc == null || !errors.startsWith("COMPILATION_FAILED")) return null;
+
+        Set<String> methods = new LinkedHashSet<>();
+        for (String line : errors.split("\n")) {
+            if (line.isBlank() || line.startsWith(" ") || line.equals("COMPILATION_FAILED")) continue;
+            Matcher m = DIAGNOSTIC.matcher(line);
+            if (!m.find() || !m.group(1).equals(file.getName())) return null;      // not positioned in this file
+
+            int lineIndex = Integer.parseInt(m.group(2)) - 1;
+            if (lineIndex >= doc.getLineCount()) return null;
+            int offset = CharArrayUtil.shiftForward(doc.getCharsSequence(), doc.getLineStartOffset(lineIndex), " \t");
+            PsiMethod method = PsiTreeUtil.getParentOfType(file.findElementAt(offset), PsiMethod.class, false);
+            if (method == null || method.getContainingClass() != testClass) return null;
+            methods.add(method.getName());
+        }
+        return worthRepairing(testClass, methods) ? methods : null;
+    }
+
+    /** Test methods of {@code testClass} that failed in {@code report}. */
+    static @Nullable Set<String> failedTestMethods(@NotNull PsiClass testClass, @NotNull TestReport report) {
+        if (!report.errors().isEmpty()) return null;                          // the run itself went wrong
+        Set<String> methods = new LinkedHashSet<>();
+        for (TestResult failed : report.failed()) {
+            String name = failed.method();
+            if (name == null || testClass.findMethodsByName(name, false).length == 0) return null;   // failed outside a test method
+            methods.add(name);
+        }
+        return worthRepairing(testClass, methods) ? methods : null;
+    }
+
+    /** Source of the given methods, as context for the repair prompt. */
+    static @NotNull String sourceOf(@NotNull PsiClass testClass, @NotNull Set<String> methodNames) {
+        StringBuilder out = new StringBuilder();
+        for (String name : methodNames) {
+            for (PsiMethod method : testClass.findMethodsByName(name, false)) {
+                out.append(method.getText()).append("\n\n");
+            }
+        }
+        return out.toString().trim();
+    }
+
+    /** A rewrite of more than half of the methods costs about as much as regenerating the class. */
+    private static boolean worthRepairing(PsiClass testClass, Set<String> methods) {
+        return !methods.isEmpty() && methods.size() * 2 <= testClass.getMethods().length;
+    }
+
+    private FailureLocator() {}
+}
@@ -51,7 +51,17 @@ public class GenerateTestAction extends AnAction implements DumbAware {
             Messages.showErrorDialog(project, "Please configure details in settings.", "JAIPilot");
             return;
         }
-        BulkGeneratorService.enqueue(project, classes, stringPathToPsiDirectory(project,AISettings.getInstance().getTestDirectory()));
+        BulkGeneratorService.enqueue(project, classes, stringPathToPsiDirectory(project,AISettings.getInstance().getTestDirectory()), regenerate(), order());
+    }
+
+    /** Whether this run should ignore cached replies and regenerate even unchanged classes. */
+    protected boolean regenerate() {
+        return false;
+    }
+
+    /** Order in which this run starts its classes. */
+    protected @NotNull BulkOrder order() {
+        return AISettings.getInstance().getBulkOrder();
     }
 
     private static @Nullable PsiDirectory stringPathToPsiDirectory(Project project, String path) {
@@ -63,7 +73,7 @@ public class GenerateTestAction extends AnAction implements DumbAware {
     }
 
 
-    private List<PsiClass> collectClasses(PsiElement elem) {
+    static List<PsiClass> collectClasses(PsiElement elem) {
         List<PsiClass> result = new ArrayList<>();
         if (elem instanceof PsiClass pc) {
             result.add(pc);
@@ -0,0 +1,143 @@
+package com.github.skrcode.javaautounittests;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-project record of what each class-under-test looked like when its test was last generated:
+ * hash of the CUT source, hash of the test we wrote, the outcome and how long the class took. Bulk
+ * runs skip classes whose hashes still match a {@link GenerationOutcome#SUCCESS}, which also makes a
+ * re-run after a cancel resume at the first unfinished class, and {@link BulkScheduler}
+ * orders classes by their recorded durations.
+ * <p>
+ * Stored as JSON under {@code <ide-system>/jaipilot/manifests/<project-hash>.json}. {@link #record}
+ * updates memory and schedules a write a few seconds later, so finished classes survive an IDE crash
+ * while a burst of records costs one write; {@link #flush()} writes at once at the end of each bulk run
+ * and when the project closes.
+ */
+public final class GenerationManifest implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(GenerationManifest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final long FLUSH_DELAY_S = 5;
+
+    public static class Entry {
+        public String sourceHash;
+        public String testHash;
+        public GenerationOutcome outcome;
+        public long updatedAt;
+        public long durationMillis;             // of the last finished (not skipped or cancelled) run, 0 if none
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries;          // guarded by this
+    private boolean dirty;                             // guarded by this
+    private @Nullable ScheduledFuture<?> pendingFlush; // guarded by this
+
+    public GenerationManifest(Project project) {
+        this.file = JAIPilotPaths.systemDir("manifests").resolve(project.getLocationHash() + ".json");
+        this.entries = load(file);
+    }
+
+    public static GenerationManifest getInstance(Project project) {
+        return project.getService(GenerationManifest.class);
+    }
+
+    /** True if the last run for this CUT succeeded and neither the CUT nor its test changed since. */
+    public synchronized boolean isUpToDate(@NotNull String qualifiedName,
+                                           @NotNull String sourceHash,
+                                           @Nullable String testHash) {
+        Entry e = entries.get(qualifiedName);
+        return e != null
+                && e.outcome == GenerationOutcome.SUCCESS
+                && sourceHash.equals(e.sourceHash)
+                && testHash != null && testHash.equals(e.testHash);
+    }
+
+    /** True if the last run for this CUT succeeded on this source; the test itself is not checked. */
+    public synchronized boolean succeededOn(@NotNull String qualifiedName, @NotNull String sourceHash) {
+        Entry e = entries.get(qualifiedName);
+        return e != null && e.outcome == GenerationOutcome.SUCCESS && sourceHash.equals(e.sourceHash);
+    }
+
+    /** Wall-clock time the last finished run of this CUT took, {@code 0} if there is none. */
+    public synchronized long durationMillis(@NotNull String qualifiedName) {
+        Entry e = entries.get(qualifiedName);
+        return e == null ? 0 : e.durationMillis;
+    }
+
+    public void record(@NotNull String qualifiedName,
+                       @NotNull String sourceHash,
+                       @Nullable String testHash,
+                       @NotNull GenerationOutcome outcome) {
+        record(qualifiedName, sourceHash, testHash, outcome, 0);
+    }
+
+    /** @param durationMillis kept only for {@link GenerationOutcome#SUCCESS} and {@link GenerationOutcome#FAILED} */
+    public synchronized void record(@NotNull String qualifiedName,
+                                    @NotNull String sourceHash,
+                                    @Nullable String testHash,
+                                    @NotNull GenerationOutcome outcome,
+                                    long durationMillis) {
+        Entry e = entries.computeIfAbsent(qualifiedName, k -> new Entry());
+        e.sourceHash = sourceHash;
+        e.testHash = testHash;
+        e.outcome = outcome;
+        e.updatedAt = System.currentTimeMillis();
+        if (outcome == GenerationOutcome.SUCCESS || outcome == GenerationOutcome.FAILED) e.durationMillis = durationMillis;
+        dirty = true;
+        if (pendingFlush == null) {
+            pendingFlush = AppExecutorUtil.getAppScheduledExecutorService().schedule(this::flush, FLUSH_DELAY_S, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Writes the manifest if anything was recorded since the last write. */
+    public synchronized void flush() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        if (!dirty) return;
+        try {
+            Path tmp = Files.createTempFile(file.getParent(), "manifest", ".tmp");
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), entries);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            LOG.warn("JAIPilot: could not write generation manifest " + file, e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        flush();
+    }
+
+    private static Map<String, Entry> load(Path file) {
+        if (Files.exists(file)) {
+            try {
+                return MAPPER.readValue(file.toFile(), new TypeReference<LinkedHashMap<String, Entry>>() {});
+            } catch (IOException e) {
+                LOG.warn("JAIPilot: generation manifest unreadable, starting fresh: " + file, e);
+            }
+        }
+        return new LinkedHashMap<>();
+    }
+}
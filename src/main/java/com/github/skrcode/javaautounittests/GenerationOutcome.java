@@ -0,0 +1,13 @@
+package com.github.skrcode.javaautounittests;
+
+/** How processing a single class-under-test ended. */
+public enum GenerationOutcome {
+    /** Test compiles and passes. */
+    SUCCESS,
+    /** Iteration budget exhausted without a passing test. */
+    FAILED,
+    /** Started but not finished – cancelled by the user (or the IDE went away). */
+    IN_PROGRESS,
+    /** Unchanged since the last successful run; nothing was sent to the model. */
+    SKIPPED
+}
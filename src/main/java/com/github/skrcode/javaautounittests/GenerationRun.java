@@ -0,0 +1,58 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.metrics.RunMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Everything a bulk run resolves once up front and shares with each {@link TestGenerationWorker}. */
+public final class GenerationRun {
+
+    private final BasePromptCache.BasePrompt basePrompt;
+    private final boolean livePreview;
+    private final boolean regenerate;
+    private final RunMetrics metrics;
+    private final Set<String> cacheKeysServed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param basePrompt  prompt template, loaded once per run
+     * @param livePreview stream replies into an in-memory editor tab (single-class runs only)
+     * @param regenerate  ignore cached LLM replies and the {@link GenerationManifest} for this run
+     *                    (fresh replies and outcomes are still recorded)
+     * @param metrics     collects the timings of every class of the run
+     */
+    public GenerationRun(@NotNull BasePromptCache.BasePrompt basePrompt, boolean livePreview, boolean regenerate,
+                         @NotNull RunMetrics metrics) {
+        this.basePrompt = basePrompt;
+        this.livePreview = livePreview;
+        this.regenerate = regenerate;
+        this.metrics = metrics;
+    }
+
+    public @NotNull BasePromptCache.BasePrompt basePrompt() {
+        return basePrompt;
+    }
+
+    public boolean livePreview() {
+        return livePreview;
+    }
+
+    public @NotNull RunMetrics metrics() {
+        return metrics;
+    }
+
+    /** Whether classes unchanged since their last successful run may be skipped. */
+    public boolean skipUnchanged() {
+        return !regenerate;
+    }
+
+    /**
+     * Whether a cached reply may be used for {@code key}. Each key is served from the cache at most
+     * once per run, so a retry that produces the same prompt asks the model again instead of
+     * replaying the reply that just failed.
+     */
+    public boolean mayUseCachedReply(@NotNull String key) {
+        return !regenerate && cacheKeysServed.add(key);
+    }
+}
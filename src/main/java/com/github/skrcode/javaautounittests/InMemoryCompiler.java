@@ -0,0 +1,179 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Ref;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles a candidate test class in memory with {@code javax.tools} against its module's classpath,
+ * before the candidate is written to the VFS or handed to the project build. Rejecting a broken
+ * answer this way takes milliseconds instead of a write, a reformat and a build.
+ * <p>
+ * Class files are discarded; the project build still produces the ones the test run uses. The
+ * check compiles against the IDE's runtime JDK and the module's last build output, so it is only a
+ * filter: a candidate it accepts still goes through the real build, and so does one whose errors
+ * include a symbol that could not be resolved – the class under test may be stale or unbuilt, a
+ * helper not compiled yet, or the project on another JDK, and only the project build can tell. The
+ * classpath and an open file manager (whose jar index is the expensive part) are cached per module
+ * until the project's roots change.
+ */
+public final class InMemoryCompiler implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(InMemoryCompiler.class);
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    private static final Pattern PUBLIC_TYPE = Pattern.compile("\\bpublic\\s+(?:final\\s+|abstract\\s+)*(?:class|interface|enum|record)\\s+(\\w+)");
+    private static final int MAX_DIAGNOSTICS = 50;
+    /** javac diagnostic keys whose cause may be this check's classpath or JDK rather than the candidate. */
+    private static final List<String> RESOLUTION_ERRORS = List.of("compiler.err.cant.resolve", "compiler.err.doesnt.exist",
+            "compiler.err.cant.access", "compiler.err.cant.apply.symbol", "compiler.err.not.def.public", "compiler.err.report.access");
+
+    private final Project project;
+    private final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    private final Map<Module, ModuleClasspath> classpaths = new ConcurrentHashMap<>();
+
+    public InMemoryCompiler(Project project) {
+        this.project = project;
+        if (javac == null) LOG.info("JAIPilot: no system Java compiler in this runtime, in-memory checks disabled");
+    }
+
+    public static InMemoryCompiler getInstance(Project project) {
+        return project.getService(InMemoryCompiler.class);
+    }
+
+    /**
+     * @return {@code null} if the candidate cannot be checked here (disabled, no compiler, unknown
+     *         module, unresolved symbols), "" if it compiles, otherwise its errors in the project
+     *         build's {@code FooTest.java:42: message} format, prefixed with {@code COMPILATION_FAILED}
+     */
+    public @Nullable String check(@Nullable Module module, @NotNull String source) {
+        if (javac == null || module == null || !AISettings.getInstance().isPrecompileInMemory()) return null;
+        long stamp = ProjectRootManager.getInstance(project).getModificationCount();
+        Ref<ModuleClasspath> replaced = new Ref<>();
+        ModuleClasspath classpath = classpaths.compute(module, (m, cached) -> {
+            if (cached != null && cached.stamp == stamp) return cached;
+            replaced.set(cached);
+            return new ModuleClasspath(stamp, ReadAction.compute(() ->
+                    OrderEnumerator.orderEntries(m).recursively().withoutSdk().getPathsList().getPathList()));
+        });
+        if (replaced.get() != null) replaced.get().close();      // outside the map; waits for a compile still using it
+
+        long started = System.nanoTime();
+        try {
+            String errors = classpath.compile(source);
+            LOG.debug("JAIPilot: in-memory check took " + (System.nanoTime() - started) / 1_000_000 + " ms");
+            return errors;
+        } catch (RuntimeException | IOException e) {
+            LOG.info("JAIPilot: in-memory check failed, deferring to the project build", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        classpaths.values().forEach(ModuleClasspath::close);
+        classpaths.clear();
+    }
+
+    /** One module's classpath and its open file manager; compilations through it and closing it are serialized. */
+    private final class ModuleClasspath {
+        final long stamp;
+        private final List<String> options;
+        private final StandardJavaFileManager fileManager;
+        private boolean closed;                 // guarded by this
+
+        ModuleClasspath(long stamp, List<String> paths) {
+            this.stamp = stamp;
+            this.options = List.of("-proc:none", "-implicit:none", "-g:none", "-nowarn", "-encoding", "UTF-8",
+                    "-classpath", String.join(File.pathSeparator, paths));
+            this.fileManager = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        }
+
+        /** @return as {@link #check}; {@code null} also if this classpath was replaced meanwhile */
+        synchronized @Nullable String compile(String source) throws IOException {
+            if (closed) return null;
+            String fileName = fileName(source);
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            JavaFileObject unit = new SimpleJavaFileObject(URI.create("string:///" + fileName), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+            boolean ok = javac.getTask(null, new DiscardingOutput(fileManager), diagnostics, options, null, List.of(unit)).call();
+            if (ok) return "";
+
+            List<Diagnostic<? extends JavaFileObject>> errors = diagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .toList();
+            if (errors.stream().anyMatch(InMemoryCompiler::isResolutionError)) {
+                LOG.debug("JAIPilot: unresolved symbols in memory, deferring to the project build");
+                return null;
+            }
+            String shortName = fileName.substring(fileName.lastIndexOf('/') + 1);
+            return "COMPILATION_FAILED\n" + errors.stream()
+                    .limit(MAX_DIAGNOSTICS)
+                    .map(d -> (d.getLineNumber() > 0 ? shortName + ":" + d.getLineNumber() + ": " : "")
+                            + d.getMessage(null).strip().replace("\n", "\n    "))
+                    .collect(Collectors.joining("\n"));
+        }
+
+        synchronized void close() {
+            closed = true;
+            try {
+                fileManager.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static boolean isResolutionError(Diagnostic<?> diagnostic) {
+        String code = diagnostic.getCode();
+        return code != null && RESOLUTION_ERRORS.stream().anyMatch(code::startsWith);
+    }
+
+    /** {@code pkg/Name.java}, as javac requires for a public top-level class. */
+    private static String fileName(String source) {
+        Matcher pkg = PACKAGE.matcher(source);
+        Matcher type = PUBLIC_TYPE.matcher(source);
+        String name = (type.find() ? type.group(1) : "Candidate") + ".java";
+        return pkg.find() ? pkg.group(1).replace('.', '/') + "/" + name : name;
+    }
+
+    /** Lets javac write class files into nothing. */
+    private static final class DiscardingOutput extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        DiscardingOutput(StandardJavaFileManager delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("discard:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return OutputStream.nullOutputStream();
+                }
+            };
+        }
+    }
+}
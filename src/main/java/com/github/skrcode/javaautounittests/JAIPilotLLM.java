@@ -1,67 +1,110 @@
 package com.github.skrcode.javaautounittests;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.skrcode.javaautounittests.llm.LLMProvider;
+import com.github.skrcode.javaautounittests.llm.LLMProviders;
+import com.github.skrcode.javaautounittests.llm.ResponseCache;
+import com.github.skrcode.javaautounittests.llm.StreamListener;
+import com.github.skrcode.javaautounittests.llm.StreamingTestClassParser;
+import com.github.skrcode.javaautounittests.llm.Tokens;
+import com.github.skrcode.javaautounittests.metrics.Phase;
+import com.github.skrcode.javaautounittests.metrics.RunMetrics;
 import com.github.skrcode.javaautounittests.settings.AISettings;
-import com.google.common.collect.ImmutableMap;
-import com.google.genai.types.GenerateContentConfig;
-import com.google.genai.types.GenerateContentResponse;
-import com.google.genai.types.Schema;
-import com.google.genai.types.Type;
-import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.ui.Messages;
-import com.openai.client.OpenAIClient;
-import com.openai.client.okhttp.OpenAIOkHttpClient;
-import com.openai.models.ChatModel;
-import com.openai.models.responses.ResponseCreateParams;
-import com.openai.models.responses.StructuredResponseCreateParams;
-import com.google.genai.Client;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
-/** Convenience façade so we can switch out or mock in tests. */
+/**
+ * Convenience façade so we can switch out or mock in tests. Throttling and transient failures are
+ * retried by the providers' rate limiter; what still fails surfaces as {@link LLMFailedException}
+ * and never as text that could end up in a test file.
+ */
 public final class JAIPilotLLM {
     public static String invokeAI(String prompt) {
         try {
-            OpenAIClient client = OpenAIOkHttpClient.builder().apiKey(AISettings.getInstance().getOpenAiKey()).build();
-
-            StructuredResponseCreateParams<ResponseOutput> params = ResponseCreateParams.builder()
-                    .input(prompt)
-                    .text(ResponseOutput.class)
-                    .model(AISettings.getInstance().getModel())
-                    .build();
-
-            return client.responses().create(params).output().stream()
-                    .flatMap(item -> item.message().stream())
-                    .flatMap(message -> message.content().stream())
-                    .flatMap(content -> content.outputText().stream())
-                    .map(responseTestClass -> responseTestClass.outputTestClass).collect(Collectors.joining());
-        } catch (Throwable t) {
-            t.printStackTrace();
-            Messages.showErrorDialog("AI Error: " + t.getClass().getName() + "\n" + t.getMessage(), "LLM Error");
-            return "ERROR: " + t.getMessage();
+            return LLMProviders.openAI().generateTestClass(prompt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+        } catch (ProcessCanceledException e) {
+            throw e;                                // the user cancelled; not a failure of the model
+        } catch (Exception e) {
+            throw new LLMFailedException(e);
         }
     }
 
-    public static String invokeAIGemini(String prompt) {
+    /**
+     * Answers from the on-disk {@link ResponseCache} when the run allows it; otherwise streams the
+     * reply (when enabled in settings) so unusable answers are cancelled early, and caches it.
+     * Either way the request is recorded in the run's {@link RunMetrics} under {@code cut}, with the
+     * rate limiter's retries.
+     */
+    public static String invokeAIGemini(String prompt, String cut, GenerationRun run, StreamListener listener) {
+        RunMetrics.Span span = null;
         try {
+            LLMProvider provider = LLMProviders.gemini();
+            String cacheKey = ResponseCache.key(provider.modelId(), run.basePrompt().version(), prompt);
+            if (run.mayUseCachedReply(cacheKey)) {
+                RunMetrics.Span lookup = run.metrics().start(Phase.LLM_CACHED, cut);
+                String cached = ResponseCache.getInstance().get(cacheKey);
+                if (cached != null) {
+                    lookup.tokens(Tokens.estimate(prompt), Tokens.estimate(cached)).end();
+                    listener.onProgress(cached.length(), () -> cached);
+                    return cached;
+                }
+            }
 
-            Client client = Client.builder().apiKey(AISettings.getInstance().getOpenAiKey()).build();
-            Schema schema = Schema.builder().type(Type.Known.OBJECT).properties(ImmutableMap.of("outputTestClass", Schema.builder().type(Type.Known.STRING).description("Output Test Class").build())).build();
-            GenerateContentConfig generateContentConfig = GenerateContentConfig.builder().responseMimeType("application/json").candidateCount(1).responseSchema(schema).build();
-            GenerateContentResponse response = client.models.generateContent("gemini-2.5-flash-lite-preview-06-17", prompt, generateContentConfig);
-            ObjectMapper mapper = new ObjectMapper();
-            ResponseOutput parsed = mapper.readValue(response.text(), ResponseOutput.class);
+            span = run.metrics().start(Phase.LLM_REQUEST, cut);
+            AtomicInteger retries = new AtomicInteger();
+            StreamListener counting = new StreamListener() {
+                @Override
+                public void onProgress(int receivedChars, @NotNull Supplier<String> partial) {
+                    listener.onProgress(receivedChars, partial);
+                }
 
-            return parsed.outputTestClass;
+                @Override
+                public void onRetry(@NotNull String reason) {
+                    retries.incrementAndGet();
+                    listener.onRetry(reason);
+                }
 
-        } catch (Throwable t) {
-            t.printStackTrace();
-            ApplicationManager.getApplication().invokeLater(() ->
-                    Messages.showErrorDialog("AI Error: " + t.getClass().getName() + "\n" + t.getMessage(), "LLM Error")
-            );
+                @Override
+                public boolean isCancelled() {
+                    return listener.isCancelled();
+                }
+            };
+            String reply = AISettings.getInstance().isStreamResponses()
+                    ? provider.streamTestClass(prompt, counting)
+                    : provider.generateTestClass(prompt, counting);
+            span.tokens(Tokens.estimate(prompt), Tokens.estimate(reply)).retries(retries.get()).end();
+            ResponseCache.getInstance().put(cacheKey, reply);
+            return reply;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+        } catch (ProcessCanceledException e) {
+            throw e;                                // the user cancelled; not a failure of the model
+        } catch (StreamingTestClassParser.EarlyAbortException e) {
+            throw new ReplyRejectedException(e);
+        } catch (Exception e) {
+            throw new LLMFailedException(e);
+        } finally {
+            if (span != null) span.fail();          // no-op once ended
+        }
+    }
+
+    /** The model answered, but the stream was cut off because the reply could not be used; worth asking again. */
+    public static final class ReplyRejectedException extends RuntimeException {
+        ReplyRejectedException(StreamingTestClassParser.EarlyAbortException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
 
-//            Messages.showErrorDialog("AI Error: " + t.getClass().getName() + "\n" + t.getMessage(), "LLM Error");
-            return "ERROR: " + t.getMessage();
+    /** The model could not be reached or gave no usable reply, even after retries. */
+    public static final class LLMFailedException extends RuntimeException {
+        LLMFailedException(Throwable cause) {
+            super(cause.getClass().getSimpleName() + ": " + cause.getMessage(), cause);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.openapi.application.PathManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Locations of JAIPilot's on-disk caches inside the IDE system directory. */
+public final class JAIPilotPaths {
+
+    /** {@code <ide-system>/jaipilot/<name>}, created on first use. */
+    public static @NotNull Path systemDir(@NotNull String name) {
+        Path dir = Path.of(PathManager.getSystemPath(), "jaipilot", name);
+        try {
+            return Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create JAIPilot cache directory " + dir, e);
+        }
+    }
+
+    private JAIPilotPaths() {}
+}
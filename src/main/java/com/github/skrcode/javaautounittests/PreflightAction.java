@@ -0,0 +1,64 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.llm.LLMProvider;
+import com.github.skrcode.javaautounittests.llm.LLMProviders;
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Counts the tokens a bulk run over the selection would send and estimates its cost and duration,
+ * without calling the model. The report opens in an editor tab.
+ */
+public class PreflightAction extends AnAction {
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        PsiElement context = e.getData(CommonDataKeys.PSI_ELEMENT);
+        if (project == null || context == null) return;
+
+        List<PsiClass> classes = GenerateTestAction.collectClasses(context);
+        if (classes.isEmpty()) {
+            Messages.showErrorDialog(project, "No Java classes found in selection.", "JAIPilot");
+            return;
+        }
+
+        ProgressManager.getInstance().run(new Task.Backgroundable(
+                project, "JAIPilot – Estimating " + classes.size() + " class(es)", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setText("Loading base prompt");
+                String basePrompt = BasePromptCache.load().text();
+                LLMProvider provider = LLMProviders.gemini();
+
+                indicator.setText("Counting prompt tokens");
+                indicator.setIndeterminate(false);
+                PreflightPlanner.Plan plan = PreflightPlanner.plan(classes, basePrompt, provider.profile(),
+                        AISettings.getInstance().getMaxParallelClasses(), indicator);
+                String report = PreflightPlanner.report(plan, provider.modelId());
+
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    LightVirtualFile file = new LightVirtualFile("JAIPilot pre-flight.txt", PlainTextFileType.INSTANCE, report);
+                    file.setWritable(false);
+                    FileEditorManager.getInstance(project).openFile(file, true);
+                }, project.getDisposed());
+            }
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.llm.ModelProfile;
+import com.github.skrcode.javaautounittests.llm.Tokens;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.psi.PsiClass;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Estimates a bulk run before it starts: the first prompt of every class is built exactly as
+ * {@link TestGenerationWorker} would build it and measured with the offline tokenizer; replies,
+ * iterations and timings are extrapolated from it with the fixed assumptions below.
+ */
+final class PreflightPlanner {
+
+    /** Generated test classes run about one and a half times the size of the class they test. */
+    private static final double OUTPUT_PER_SOURCE_TOKEN = 1.5;
+    private static final int    MIN_OUTPUT_TOKENS       = 1_500;
+    /** First generation plus, on average, one repair or coverage round. */
+    private static final double EXPECTED_REQUESTS       = 2.0;
+    /** Compile plus test run of one iteration. */
+    private static final long   BUILD_AND_RUN_MILLIS    = 15_000;
+
+    /**
+     * @param sourceTokens  the CUT's file as it is on disk
+     * @param promptTokens  first prompt, after {@link ContextExtractor} fitted the CUT into its budget
+     * @param trimmed       the CUT had to be compacted beyond dropping comments to fit the budget
+     * @param exceedsWindow even the compacted prompt leaves no room for a reply
+     */
+    record ClassEstimate(String qualifiedName, int sourceTokens, int promptTokens, int outputTokens,
+                         boolean trimmed, boolean exceedsWindow, double costUsd, long millis) {}
+
+    record Plan(List<ClassEstimate> classes, ModelProfile profile, int parallelism, Duration wallClock) {
+
+        long promptTokens() {
+            return classes.stream().mapToLong(ClassEstimate::promptTokens).sum();
+        }
+
+        double costUsd() {
+            return classes.stream().mapToDouble(ClassEstimate::costUsd).sum();
+        }
+    }
+
+    static @NotNull Plan plan(@NotNull List<PsiClass> classes, @NotNull String basePrompt, @NotNull ModelProfile profile,
+                              int parallelism, @NotNull ProgressIndicator ind) {
+        List<ClassEstimate> estimates = new ArrayList<>();
+        for (int i = 0; i < classes.size(); i++) {
+            ind.checkCanceled();
+            ind.setFraction(i / (double) classes.size());
+            PsiClass cut = classes.get(i);
+            estimates.add(ReadAction.compute(() -> estimate(cut, basePrompt, profile)));
+        }
+
+        long totalMillis   = estimates.stream().mapToLong(ClassEstimate::millis).sum();
+        long longestMillis = estimates.stream().mapToLong(ClassEstimate::millis).max().orElse(0);
+        Duration wallClock = Duration.ofMillis(Math.max(longestMillis, totalMillis / Math.max(1, parallelism)));
+        return new Plan(estimates, profile, parallelism, wallClock);
+    }
+
+    private static ClassEstimate estimate(PsiClass cut, String basePrompt, ModelProfile profile) {
+        ContextModel ctx = ContextExtractor.buildContext(cut);
+        int promptTokens = Tokens.estimate(PromptBuilder.build(basePrompt, ctx));
+        int sourceTokens = Tokens.estimate(cut.getContainingFile().getText());
+        int cutTokens    = Tokens.estimate(ctx.fullSource);
+        int outputTokens = (int) Math.min(profile.maxOutputTokens(),
+                Math.max(MIN_OUTPUT_TOKENS, cutTokens * OUTPUT_PER_SOURCE_TOKEN));
+
+        // later requests also carry the previous test class
+        long inputTokens = Math.round(promptTokens + (EXPECTED_REQUESTS - 1) * (promptTokens + outputTokens));
+        double cost = profile.costUsd(inputTokens, Math.round(EXPECTED_REQUESTS * outputTokens));
+        long millis = Math.round(EXPECTED_REQUESTS * (profile.requestMillis(outputTokens) + BUILD_AND_RUN_MILLIS));
+
+        return new ClassEstimate(cut.getQualifiedName(), sourceTokens, promptTokens, outputTokens,
+                ctx.fullSource.contains("// Bodies omitted") || ctx.fullSource.contains("// Private methods not shown")
+                        || ctx.fullSource.contains("// … truncated"),
+                promptTokens > profile.maxPromptTokens(), cost, millis);
+    }
+
+    /** Plain-text report, largest prompts first, flagged classes on top. */
+    static @NotNull String report(@NotNull Plan plan, @NotNull String modelId) {
+        StringBuilder out = new StringBuilder();
+        out.append("JAIPilot pre-flight estimate\n")
+           .append("============================\n\n")
+           .append(String.format("Model                 %s (input window %,d tokens, replies up to %,d)%n",
+                   modelId, plan.profile().contextWindowTokens(), plan.profile().maxOutputTokens()))
+           .append(String.format("Classes               %,d%n", plan.classes().size()))
+           .append(String.format("First-prompt tokens   %,d%n", plan.promptTokens()))
+           .append(String.format("Estimated cost        $%.2f%n", plan.costUsd()))
+           .append(String.format("Estimated duration    %s at %d class(es) in parallel%n",
+                   format(plan.wallClock()), plan.parallelism()))
+           .append(String.format("Assumptions           %.0f requests per class, replies %.1fx the class size, %ds build + run per iteration%n%n",
+                   EXPECTED_REQUESTS, OUTPUT_PER_SOURCE_TOKEN, BUILD_AND_RUN_MILLIS / 1000));
+
+        List<ClassEstimate> rows = new ArrayList<>(plan.classes());
+        rows.sort(Comparator.comparing((ClassEstimate e) -> !(e.exceedsWindow() || e.trimmed()))
+                .thenComparing(Comparator.comparingInt(ClassEstimate::promptTokens).reversed()));
+
+        long tooLarge = rows.stream().filter(ClassEstimate::exceedsWindow).count();
+        long trimmed  = rows.stream().filter(e -> e.trimmed() && !e.exceedsWindow()).count();
+        if (tooLarge > 0) out.append(tooLarge).append(" class(es) exceed the model's input window and will be skipped.\n");
+        if (trimmed > 0)  out.append(trimmed).append(" class(es) exceed the context token budget and are sent in compacted form.\n");
+        if (tooLarge + trimmed > 0) out.append('\n');
+
+        out.append(String.format("%-60s %10s %10s %10s %9s %9s  %s%n", "Class", "Source", "Prompt", "Reply", "Cost", "Time", "Note"));
+        for (ClassEstimate e : rows) {
+            String note = e.exceedsWindow() ? "TOO LARGE" : e.trimmed() ? "trimmed" : "";
+            out.append(String.format("%-60s %,10d %,10d %,10d %9s %9s  %s%n",
+                    abbreviate(e.qualifiedName(), 60), e.sourceTokens(), e.promptTokens(), e.outputTokens(),
+                    String.format("$%.3f", e.costUsd()), format(Duration.ofMillis(e.millis())), note));
+        }
+        return out.toString();
+    }
+
+    private static String format(Duration d) {
+        long s = d.toSeconds();
+        return s >= 3600 ? String.format("%dh%02dm", s / 3600, s % 3600 / 60)
+                         : String.format("%dm%02ds", s / 60, s % 60);
+    }
+
+    private static String abbreviate(String s, int max) {
+        return s.length() <= max ? s : "…" + s.substring(s.length() - max + 1);
+    }
+
+    private PreflightPlanner() {}
+}
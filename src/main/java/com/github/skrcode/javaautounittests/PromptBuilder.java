@@ -1,36 +1,83 @@
 package com.github.skrcode.javaautounittests;
 
-
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.Map;
 
+/**
+ * Renders the generation and repair prompts. Templates are parsed into {@link PromptTemplate}s once
+ * (the base prompt again only when a run loads a different text) and rendered in one pass.
+ */
 public class PromptBuilder {
 
-    public static String loadPromptFromUrl(String url) {
-        try (InputStream in = new URL(url).openStream()) {
-            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load prompt from: " + url, e);
-        }
-    }
+    private static volatile PromptTemplate baseTemplate;
+    private static volatile PromptTemplate repairTemplate;
 
     public static String build(String basePrompt, ContextModel ctx) {
         if (basePrompt == null || ctx == null) {
             throw new IllegalArgumentException("basePrompt and ctx must not be null");
         }
 
-        return basePrompt
-//                .replace("{{inputclass}}", safe(ctx.qualifiedName))
-                .replace("{{inputclass}}", safe(ctx.fullSource))
-                .replace("{{erroroutput}}", safe(ctx.errorMessage))
-//                .replace("{{outputCoverage}}", safe(ctx.outputCoverage))
-                .replace("{{testclass}}", safe(ctx.existingTestSource));
+        PromptTemplate template = baseTemplate(basePrompt);
+        Map<String, String> values = Map.of(
+                "inputclass", safe(ctx.fullSource),
+                "erroroutput", safe(ctx.errorMessage),
+                "testclass", safe(ctx.existingTestSource),
+                "collaborators", safe(ctx.collaborators),
+                "outputCoverage", safe(ctx.outputCoverage));
+
+        // prompts published before these placeholders existed still get the sections appended
+        String collaborators = section(template, "collaborators", "Collaborator APIs", COLLABORATOR_INSTRUCTIONS, ctx.collaborators);
+        String coverage = section(template, "outputCoverage", "Coverage gaps", COVERAGE_INSTRUCTIONS, ctx.outputCoverage);
+
+        StringBuilder prompt = new StringBuilder(template.length(values) + collaborators.length() + coverage.length());
+        template.renderTo(prompt, values);
+        return prompt.append(collaborators).append(coverage).toString();
+    }
+
+    private static String section(PromptTemplate template, String slot, String title, String instructions, String value) {
+        if (template.hasSlot(slot) || value == null || value.isEmpty()) return "";
+        return "\n\n### " + title + "\n" + instructions + "\n" + value;
+    }
+
+    /**
+     * Prompt for a surgical repair: the model returns only the fixed versions of
+     * {@code ctx.failingMethods} (see {@link TestPatcher}). Uses the bundled {@code repair-prompt}.
+     */
+    public static String buildRepair(ContextModel ctx) {
+        return repairTemplate().render(Map.of(
+                "inputclass", safe(ctx.fullSource),
+                "testclass", safe(ctx.existingTestSource),
+                "collaborators", safe(ctx.collaborators),
+                "failingmethods", safe(ctx.failingMethods),
+                "erroroutput", safe(ctx.errorMessage)));
+    }
+
+    private static PromptTemplate baseTemplate(String basePrompt) {
+        PromptTemplate template = baseTemplate;
+        if (template != null && template.text().equals(basePrompt)) return template;
+        return baseTemplate = PromptTemplate.parse(basePrompt);
     }
 
+    private static PromptTemplate repairTemplate() {
+        PromptTemplate template = repairTemplate;
+        if (template != null) return template;
+        try (InputStream in = PromptBuilder.class.getResourceAsStream("/repair-prompt")) {
+            if (in == null) throw new IllegalStateException("Bundled repair-prompt resource is missing");
+            return repairTemplate = PromptTemplate.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read bundled repair-prompt", e);
+        }
+    }
+
+    private static final String COLLABORATOR_INSTRUCTIONS =
+            "Signatures of the project types the input class uses. Call and mock only what is listed here.";
+
+    private static final String COVERAGE_INSTRUCTIONS =
+            "All tests in the existing test class pass, but coverage of the input class is below the target. "
+            + "Keep every existing test and add tests that execute the lines and branches listed below.";
+
     private static String safe(String val) {
         return val != null ? val : "";
     }
@@ -0,0 +1,176 @@
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A prompt template parsed once into literal text and placeholder slots, then rendered in a single
+ * pass into a buffer sized up front. Unlike chained {@link String#replace} calls, rendering copies
+ * the class and test sources once and never scans them for placeholders, so a source that happens to
+ * contain {@code {{testclass}}} stays as it is.
+ * <p>
+ * Syntax:
+ * <ul>
+ *   <li>{@code {{name}}} – replaced by the value of {@code name}; a placeholder without a value is
+ *       kept as written (and logged once), since a remotely fetched prompt may use names this build
+ *       does not know;</li>
+ *   <li>{@code {{name|max=N}}} – the value is cut to at most {@code N} characters, at a line break
+ *       where possible, and marked as truncated; the bundled prompts cap the error output and the
+ *       existing test this way;</li>
+ *   <li>{@code \{{} – a literal {@code {{}; anything else that is not a well-formed placeholder is
+ *       kept as written.</li>
+ * </ul>
+ */
+public final class PromptTemplate {
+
+    private static final Logger LOG = Logger.getInstance(PromptTemplate.class);
+    private static final String OPEN  = "{{";
+    private static final String CLOSE = "}}";
+    private static final String MAX   = "max=";
+    private static final String TRUNCATED = "\n… [truncated]";
+
+    private final String text;
+    private final List<Part> parts;
+    private final int literalLength;
+    private final Set<String> reportedUnknown = ConcurrentHashMap.newKeySet();
+
+    private sealed interface Part permits Literal, Slot {}
+
+    private record Literal(String text) implements Part {}
+
+    /** @param placeholder the slot as written in the template, emitted when it has no value */
+    private record Slot(String name, int maxChars, String placeholder) implements Part {}
+
+    private PromptTemplate(String text, List<Part> parts) {
+        this.text = text;
+        this.parts = parts;
+        this.literalLength = parts.stream().mapToInt(p -> p instanceof Literal l ? l.text().length() : 0).sum();
+    }
+
+    public static @NotNull PromptTemplate parse(@NotNull String text) {
+        List<Part> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int open = text.indexOf(OPEN, i);
+            if (open < 0) {
+                literal.append(text, i, text.length());
+                break;
+            }
+            if (open > i && text.charAt(open - 1) == '\\') {
+                literal.append(text, i, open - 1).append(OPEN);
+                i = open + OPEN.length();
+                continue;
+            }
+            literal.append(text, i, open);
+            int close = text.indexOf(CLOSE, open + OPEN.length());
+            Slot slot = close < 0 ? null : slot(text.substring(open, close + CLOSE.length()));
+            if (slot == null) {
+                literal.append(OPEN);
+                i = open + OPEN.length();
+                continue;
+            }
+            if (!literal.isEmpty()) parts.add(new Literal(literal.toString()));
+            literal.setLength(0);
+            parts.add(slot);
+            i = close + CLOSE.length();
+        }
+        if (!literal.isEmpty()) parts.add(new Literal(literal.toString()));
+        return new PromptTemplate(text, List.copyOf(parts));
+    }
+
+    /** {@code {{name}}} or {@code {{name|max=N}}}; {@code null} if {@code placeholder} is not a well-formed slot. */
+    private static @Nullable Slot slot(String placeholder) {
+        String body = placeholder.substring(OPEN.length(), placeholder.length() - CLOSE.length());
+        int bar = body.indexOf('|');
+        String name = bar < 0 ? body : body.substring(0, bar);
+        if (name.isEmpty() || !name.chars().allMatch(Character::isJavaIdentifierPart)) return null;
+        if (bar < 0) return new Slot(name, Integer.MAX_VALUE, placeholder);
+        String option = body.substring(bar + 1).strip();
+        if (!option.startsWith(MAX)) return null;
+        try {
+            return new Slot(name, Math.max(0, Integer.parseInt(option.substring(MAX.length()).strip())), placeholder);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** The text this template was parsed from. */
+    public @NotNull String text() {
+        return text;
+    }
+
+    public boolean hasSlot(@NotNull String name) {
+        return parts.stream().anyMatch(p -> p instanceof Slot slot && slot.name().equals(name));
+    }
+
+    /** Exact length of {@link #render} for {@code values}, for sizing the buffer. */
+    public int length(@NotNull Map<String, ? extends CharSequence> values) {
+        long length = literalLength;
+        for (Part part : parts) {
+            if (part instanceof Slot slot) {
+                CharSequence value = values.get(slot.name());
+                int keep = kept(slot, value);
+                if (value == null) length += slot.placeholder().length();
+                else length += keep < 0 ? value.length() : keep + TRUNCATED.length();
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, length);
+    }
+
+    public @NotNull String render(@NotNull Map<String, ? extends CharSequence> values) {
+        StringBuilder out = new StringBuilder(length(values));
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    /** Writes the rendered prompt to {@code out}, e.g. a pre-sized builder or a request body writer. */
+    public void renderTo(@NotNull Appendable out, @NotNull Map<String, ? extends CharSequence> values) {
+        try {
+            for (Part part : parts) {
+                if (part instanceof Literal literal) {
+                    out.append(literal.text());
+                    continue;
+                }
+                Slot slot = (Slot) part;
+                CharSequence value = values.get(slot.name());
+                if (value != null) {
+                    int keep = kept(slot, value);
+                    if (keep < 0) out.append(value);
+                    else out.append(value, 0, keep).append(TRUNCATED);
+                    continue;
+                }
+                if (reportedUnknown.add(slot.name())) {
+                    LOG.warn("JAIPilot: prompt placeholder " + slot.placeholder() + " has no value in this version, kept as written");
+                }
+                out.append(slot.placeholder());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** How much of an over-long {@code value} to keep before the truncation marker; {@code -1} to keep it all. */
+    private static int kept(Slot slot, @Nullable CharSequence value) {
+        if (value == null || value.length() <= slot.maxChars()) return -1;
+        int keep = Math.max(0, slot.maxChars() - TRUNCATED.length());
+        int lineEnd = lastLineBreak(value, keep);
+        return lineEnd > keep / 2 ? lineEnd : keep;
+    }
+
+    private static int lastLineBreak(CharSequence value, int before) {
+        for (int i = before - 1; i >= 0; i--) {
+            if (value.charAt(i) == '\n') return i;
+        }
+        return -1;
+    }
+}
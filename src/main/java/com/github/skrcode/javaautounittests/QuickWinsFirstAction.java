@@ -0,0 +1,15 @@
+package com.github.skrcode.javaautounittests;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Same as {@link GenerateTestAction}, but starts the classes expected to finish soonest first, for
+ * runs that should produce as many tests as possible per minute or may be cancelled part-way.
+ */
+public class QuickWinsFirstAction extends GenerateTestAction {
+
+    @Override
+    protected @NotNull BulkOrder order() {
+        return BulkOrder.CHEAPEST_FIRST;
+    }
+}
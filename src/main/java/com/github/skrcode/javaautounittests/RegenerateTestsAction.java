@@ -0,0 +1,13 @@
+package com.github.skrcode.javaautounittests;
+
+/**
+ * Same as {@link GenerateTestAction}, but ignores cached LLM replies and the generation manifest
+ * for this run, so every selected class is regenerated and every prompt goes to the model again.
+ */
+public class RegenerateTestsAction extends GenerateTestAction {
+
+    @Override
+    protected boolean regenerate() {
+        return true;
+    }
+}
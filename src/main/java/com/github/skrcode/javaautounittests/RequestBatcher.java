@@ -0,0 +1,101 @@
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * Coalesces requests that arrive from many pipeline workers within a short window into one batch
+ * call. Each caller gets a future for its own slice of the batch result; nobody blocks while a batch
+ * waits for company, queues or runs.
+ *
+ * @param <K> request key, e.g. a test file
+ * @param <R> per-key result
+ */
+final class RequestBatcher<K, R> {
+
+    private final long windowMs;
+    private final int maxBatch;
+    private final Function<List<K>, CompletableFuture<Map<K, R>>> batchCall;
+    private final IntSupplier maxConcurrentBatches;
+
+    // guarded by this
+    private LinkedHashMap<K, CompletableFuture<R>> pending = new LinkedHashMap<>();
+    private final ArrayDeque<LinkedHashMap<K, CompletableFuture<R>>> ready = new ArrayDeque<>();
+    private int running;
+
+    /**
+     * @param windowMs             how long the first request of a batch waits for company
+     * @param maxBatch             flush immediately once this many requests are queued
+     * @param batchCall            starts one batch and must not block; keys missing from its result complete exceptionally
+     * @param maxConcurrentBatches how many batches may be running at once, read whenever a batch could
+     *                             start so a changed setting applies to the next one; later ones queue
+     */
+    RequestBatcher(long windowMs, int maxBatch, Function<List<K>, CompletableFuture<Map<K, R>>> batchCall,
+                   IntSupplier maxConcurrentBatches) {
+        this.windowMs = windowMs;
+        this.maxBatch = maxBatch;
+        this.batchCall = batchCall;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+    }
+
+    @NotNull CompletableFuture<R> submit(@NotNull K key) {
+        CompletableFuture<R> result;
+        boolean flushNow;
+        synchronized (this) {
+            boolean first = pending.isEmpty();
+            result = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+            flushNow = pending.size() >= maxBatch;
+            if (first && !flushNow) {
+                AppExecutorUtil.getAppScheduledExecutorService().schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) flush();
+        return result;
+    }
+
+    private void flush() {
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            ready.add(pending);
+            pending = new LinkedHashMap<>();
+        }
+        startReady();
+    }
+
+    private void startReady() {
+        while (true) {
+            LinkedHashMap<K, CompletableFuture<R>> batch;
+            synchronized (this) {
+                if (running >= Math.max(1, maxConcurrentBatches.getAsInt()) || ready.isEmpty()) return;
+                batch = ready.poll();
+                running++;
+            }
+            CompletableFuture<Map<K, R>> call;
+            try {
+                call = batchCall.apply(new ArrayList<>(batch.keySet()));
+            } catch (Throwable t) {
+                call = CompletableFuture.failedFuture(t);
+            }
+            call.whenComplete((results, error) -> {
+                batch.forEach((key, future) -> {
+                    if (error != null) future.completeExceptionally(error);
+                    else if (results.containsKey(key)) future.complete(results.get(key));
+                    else future.completeExceptionally(new IllegalStateException("No batch result for " + key));
+                });
+                synchronized (this) {
+                    running--;
+                }
+                startReady();
+            });
+        }
+    }
+}
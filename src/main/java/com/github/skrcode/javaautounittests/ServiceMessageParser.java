@@ -0,0 +1,154 @@
+package com.github.skrcode.javaautounittests;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for {@code ##teamcity[name key='value' ...]} service messages in raw test
+ * process output. Chunks may split a message anywhere. Ordinary output lines are skipped as they
+ * stream by and never buffered, and attribute values are unescaped on the fly and kept up to
+ * {@code maxValueChars} (the rest is only counted), so memory stays bounded however much a test prints.
+ * <p>
+ * A message is emitted as soon as its closing {@code ]} arrives; one broken by a raw line break or
+ * malformed syntax is dropped.
+ */
+final class ServiceMessageParser {
+
+    static final String PREFIX = "##teamcity[";
+
+    private static final int MAX_NAME_CHARS = 64;
+    private static final int MAX_ATTRIBUTES = 32;
+
+    /** One service message; truncated values end in a {@code … [n more characters]} marker. */
+    record Message(@NotNull String name, @NotNull Map<String, String> attributes) {
+        String get(String key) {
+            return attributes.get(key);
+        }
+    }
+
+    private enum State { LINE_START, SKIP_LINE, NAME, SPACE, KEY, EQUALS, VALUE, ESCAPE, UNICODE, TAIL }
+
+    private final int maxValueChars;
+    private final Consumer<Message> sink;
+
+    private State state = State.LINE_START;
+    private int prefixMatched;
+    private final StringBuilder name = new StringBuilder();
+    private final StringBuilder key = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+    private final StringBuilder unicode = new StringBuilder();
+    private int droppedChars;
+    private Map<String, String> attributes = new LinkedHashMap<>();
+
+    ServiceMessageParser(int maxValueChars, @NotNull Consumer<Message> sink) {
+        this.maxValueChars = maxValueChars;
+        this.sink = sink;
+    }
+
+    void feed(@NotNull CharSequence chunk) {
+        for (int i = 0, n = chunk.length(); i < n; i++) accept(chunk.charAt(i));
+    }
+
+    private void accept(char c) {
+        if (c == '\n') {                                    // values are escaped, so a raw line break always ends the line
+            state = State.LINE_START;
+            prefixMatched = 0;
+            return;
+        }
+        switch (state) {
+            case LINE_START -> {
+                if (c == PREFIX.charAt(prefixMatched)) {
+                    if (++prefixMatched == PREFIX.length()) begin();
+                } else if (prefixMatched > 0 || !Character.isWhitespace(c)) {
+                    state = State.SKIP_LINE;
+                }
+            }
+            case SKIP_LINE, TAIL -> { }
+            case NAME -> {
+                if (c == ']' && !name.isEmpty()) emit();
+                else if (Character.isWhitespace(c) && !name.isEmpty()) state = State.SPACE;
+                else if (Character.isLetterOrDigit(c) && name.length() < MAX_NAME_CHARS) name.append(c);
+                else state = State.SKIP_LINE;
+            }
+            case SPACE -> {
+                if (c == ']') emit();
+                else if (c == '\'') startValue("");         // single-value form: ##teamcity[message 'text']
+                else if (Character.isJavaIdentifierPart(c)) {
+                    key.setLength(0);
+                    key.append(c);
+                    state = State.KEY;
+                } else if (!Character.isWhitespace(c)) state = State.SKIP_LINE;
+            }
+            case KEY -> {
+                if (c == '=') state = State.EQUALS;
+                else if (Character.isJavaIdentifierPart(c) && key.length() < MAX_NAME_CHARS) key.append(c);
+                else state = State.SKIP_LINE;
+            }
+            case EQUALS -> {
+                if (c == '\'') startValue(key.toString());
+                else state = State.SKIP_LINE;
+            }
+            case VALUE -> {
+                if (c == '|') state = State.ESCAPE;
+                else if (c == '\'') endValue();
+                else append(c);
+            }
+            case ESCAPE -> {
+                state = State.VALUE;
+                switch (c) {
+                    case 'n' -> append('\n');
+                    case 'r' -> append('\r');
+                    case '0' -> {                           // |0xNNNN
+                        unicode.setLength(0);
+                        state = State.UNICODE;
+                    }
+                    default -> append(c);                   // | ' [ ]
+                }
+            }
+            case UNICODE -> {
+                unicode.append(c);
+                if (unicode.length() < 5) return;
+                state = State.VALUE;
+                try {
+                    if (unicode.charAt(0) != 'x') throw new NumberFormatException();
+                    append((char) Integer.parseInt(unicode.substring(1), 16));
+                } catch (NumberFormatException e) {
+                    value.append("|0").append(unicode);
+                }
+            }
+        }
+    }
+
+    private void begin() {
+        state = State.NAME;
+        name.setLength(0);
+        attributes = new LinkedHashMap<>();
+    }
+
+    private void startValue(String forKey) {
+        key.setLength(0);
+        key.append(forKey);
+        value.setLength(0);
+        droppedChars = 0;
+        state = State.VALUE;
+    }
+
+    private void append(char c) {
+        if (value.length() < maxValueChars) value.append(c);
+        else droppedChars++;
+    }
+
+    private void endValue() {
+        if (droppedChars > 0) value.append("… [").append(droppedChars).append(" more characters]");
+        if (attributes.size() < MAX_ATTRIBUTES) attributes.put(key.toString(), value.toString());
+        state = State.SPACE;
+    }
+
+    private void emit() {
+        state = State.TAIL;
+        sink.accept(new Message(name.toString(), attributes));
+    }
+}
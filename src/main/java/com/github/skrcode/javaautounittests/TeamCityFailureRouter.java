@@ -0,0 +1,210 @@
+package com.github.skrcode.javaautounittests;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the {@code ##teamcity[...]} output of one JUnit run that covered several test classes into
+ * a {@link TestReport} per class. Messages are read by a {@link ServiceMessageParser} as the output
+ * streams in; test nodes are attributed to a class through the {@code locationHint} of their
+ * {@code testStarted} / {@code testSuiteStarted} message ({@code java:test://pkg.FooTest/method},
+ * {@code java:suite://pkg.FooTest}), and later messages are paired with their test via
+ * {@code nodeId} / {@code parentNodeId}. Failures that cannot be attributed become errors of every
+ * class of the run.
+ * <p>
+ * Only the results are kept, with messages, traces and per-test output cut to fixed sizes.
+ */
+final class TeamCityFailureRouter {
+
+    private static final Pattern LOCATION = Pattern.compile("java:(?:test|suite)://([^/$]+)");
+    private static final Pattern METHOD   = Pattern.compile("java:test://[^/]+/([\\w$]+)");
+
+    /** Longest attribute value the parser keeps, which bounds stack traces; they rarely need more to be useful. */
+    private static final int MAX_VALUE_CHARS   = 8_000;
+    private static final int MAX_MESSAGE_CHARS = 2_000;
+    private static final int MAX_OUTPUT_CHARS  = 2_000;
+    private static final int MAX_ERRORS        = 20;
+
+    private final Set<String> classes;
+    private final ServiceMessageParser parser = new ServiceMessageParser(MAX_VALUE_CHARS, this::onMessage);
+    /** Suite and test nodes by {@code nodeId}: which class and method they belong to. */
+    private final Map<String, Node> nodes = new HashMap<>();
+    /** Tests started and not yet finished, by {@code nodeId} (or name, for runners without ids). */
+    private final Map<String, Running> running = new LinkedHashMap<>();
+    private final Map<String, List<TestResult>> results = new HashMap<>();
+    private final List<String> errors = new ArrayList<>();
+    private String lastStartedClass;
+
+    private record Node(String cls, @Nullable String method) {}
+
+    /** A test between {@code testStarted} and {@code testFinished}. */
+    private static final class Running {
+        final String cls, method, name;
+        final long startedNanos = System.nanoTime();
+        TestResult.Status status = TestResult.Status.PASSED;
+        String message = "", trace = "";
+        final StringBuilder output = new StringBuilder();
+
+        Running(String cls, String method, String name) {
+            this.cls = cls;
+            this.method = method;
+            this.name = name;
+        }
+
+        TestResult result(TestResult.Status finalStatus, long durationMillis) {
+            return new TestResult(cls, method, name, finalStatus, durationMillis, message, trace,
+                    finalStatus.failed() ? output.toString() : "");
+        }
+    }
+
+    TeamCityFailureRouter(@NotNull Collection<String> qualifiedClassNames) {
+        this.classes = new LinkedHashSet<>(qualifiedClassNames);
+    }
+
+    /** Feeds raw process output; lines may arrive split across several chunks. */
+    synchronized void accept(@NotNull String chunk) {
+        parser.feed(chunk);
+    }
+
+    /** Records a failure of the whole run (e.g. the JVM did not start). */
+    synchronized void failAll(@NotNull String message) {
+        error(message);
+    }
+
+    /**
+     * One report per class of the run. Tests still running count as {@link TestResult.Status#INCOMPLETE};
+     * they are not removed, so this may be called again if more output arrives. A class without any
+     * test events gets a {@link TestReport#noTestsRun} error.
+     */
+    synchronized @NotNull Map<String, TestReport> reportsByClass() {
+        Map<String, TestReport> reports = new LinkedHashMap<>();
+        for (String cls : classes) {
+            List<TestResult> tests = new ArrayList<>(results.getOrDefault(cls, List.of()));
+            for (Running r : running.values()) {
+                if (r.cls.equals(cls)) {
+                    tests.add(r.result(TestResult.Status.INCOMPLETE, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - r.startedNanos)));
+                }
+            }
+            List<String> classErrors = new ArrayList<>(errors);
+            if (tests.isEmpty()) classErrors.add(TestReport.noTestsRun(cls));
+            reports.put(cls, new TestReport(List.copyOf(tests), List.copyOf(classErrors)));
+        }
+        return reports;
+    }
+
+    private void onMessage(ServiceMessageParser.Message m) {
+        switch (m.name()) {
+            case "testSuiteStarted", "testStarted" -> started(m);
+            case "testStdOut", "testStdErr" -> {
+                Running r = running.get(key(m));
+                if (r != null) appendTail(r.output, m.get("out"));
+            }
+            case "testFailed" -> failed(m);
+            case "testIgnored" -> {
+                Running r = running.get(key(m));
+                if (r != null) {
+                    r.status = TestResult.Status.IGNORED;
+                    r.message = cap(m.get("message"), MAX_MESSAGE_CHARS);
+                }
+            }
+            case "testFinished" -> {
+                Running r = running.remove(key(m));
+                if (r != null) finished(r, duration(m, r));
+            }
+            default -> { }
+        }
+    }
+
+    private void started(ServiceMessageParser.Message m) {
+        String hint = m.get("locationHint");
+        String cls = owningClass(hint);
+        if (cls == null) return;
+        lastStartedClass = cls;
+        String method = testMethod(hint);
+        if (m.get("nodeId") != null) nodes.put(m.get("nodeId"), new Node(cls, method));
+        if (m.name().equals("testStarted")) running.put(key(m), new Running(cls, method, String.valueOf(m.get("name"))));
+    }
+
+    private void failed(ServiceMessageParser.Message m) {
+        String message = cap(m.get("message"), MAX_MESSAGE_CHARS);
+        String trace = Objects.requireNonNullElse(m.get("details"), "");
+        Running r = running.get(key(m));
+        if (r != null) {
+            r.status = TestResult.Status.FAILED;
+            r.message = message;
+            r.trace = trace;
+            return;
+        }
+        // a suite (class could not be loaded, @BeforeAll failed) or a test that was never started
+        Node node = nodes.getOrDefault(m.get("nodeId"), nodes.get(m.get("parentNodeId")));
+        String cls = node != null ? node.cls() : lastStartedClass;
+        String name = String.valueOf(m.get("name"));
+        if (cls != null && classes.contains(cls)) {
+            finished(cls, new TestResult(cls, null, name, TestResult.Status.FAILED, 0, message, trace, ""));
+        } else {
+            error((TestReport.FAILED_CLASS_PREFIX + name + "\n" + message + "\n" + trace).strip());
+        }
+    }
+
+    private void finished(Running r, long durationMillis) {
+        finished(r.cls, r.result(r.status, durationMillis));
+    }
+
+    private void finished(String cls, TestResult result) {
+        if (classes.contains(cls)) results.computeIfAbsent(cls, k -> new ArrayList<>()).add(result);
+        else if (result.status().failed()) error((TestReport.FAILED_CLASS_PREFIX + result.name() + "\n" + result.message()).strip());
+    }
+
+    private void error(String message) {
+        if (errors.size() < MAX_ERRORS) errors.add(message);
+    }
+
+    /** Pairs a message with its test: by node id, else by name. */
+    private static String key(ServiceMessageParser.Message m) {
+        String nodeId = m.get("nodeId");
+        return nodeId != null ? nodeId : "name:" + m.get("name");
+    }
+
+    private static long duration(ServiceMessageParser.Message m, Running r) {
+        try {
+            return Long.parseLong(m.get("duration"));
+        } catch (NumberFormatException e) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - r.startedNanos);
+        }
+    }
+
+    private String owningClass(String locationHint) {
+        if (locationHint == null) return null;
+        Matcher m = LOCATION.matcher(locationHint);
+        if (!m.find()) return null;
+        String cls = m.group(1);
+        // a nested test class belongs to the generated top-level class that contains it
+        for (String candidate : classes) {
+            if (cls.equals(candidate) || cls.startsWith(candidate + ".")) return candidate;
+        }
+        return cls;
+    }
+
+    private static String testMethod(String locationHint) {
+        if (locationHint == null) return null;
+        Matcher m = METHOD.matcher(locationHint);
+        return m.find() ? m.group(1) : null;
+    }
+
+    private static String cap(@Nullable String text, int maxChars) {
+        if (text == null) return "";
+        return text.length() <= maxChars ? text : text.substring(0, maxChars) + "\n… [" + (text.length() - maxChars) + " more characters]";
+    }
+
+    /** Keeps the last {@value #MAX_OUTPUT_CHARS} characters: the lines just before a failure matter most. */
+    private static void appendTail(StringBuilder output, @Nullable String text) {
+        if (text == null) return;
+        output.append(text);
+        if (output.length() > MAX_OUTPUT_CHARS) output.delete(0, output.length() - MAX_OUTPUT_CHARS);
+    }
+}
@@ -1,106 +1,510 @@
 package com.github.skrcode.javaautounittests;
 
+import com.github.skrcode.javaautounittests.llm.LLMProviders;
+import com.github.skrcode.javaautounittests.llm.StreamListener;
+import com.github.skrcode.javaautounittests.llm.Tokens;
+import com.github.skrcode.javaautounittests.metrics.Phase;
+import com.github.skrcode.javaautounittests.metrics.RunMetrics;
 import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.CommandProcessor;
 import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.psi.*;
 import com.intellij.psi.codeStyle.CodeStyleManager;
 import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Generates, compiles, runs and repairs the test class of one CUT. Every step is a
+ * {@link CompletableFuture} stage: compilation and test runs complete from IDE callbacks, EDT work
+ * is queued with {@code invokeLater}, and only CPU work and the (blocking) LLM SDK calls occupy a
+ * pooled thread – so a class waiting for a build or a test JVM holds no thread at all.
+ * <p>
+ * Candidates are first compiled in memory by {@link InMemoryCompiler}; one that does not compile is
+ * sent back to the model without being written to the project or built, unless its errors involve
+ * unresolved symbols, which only the project build can confirm.
+ */
 public final class TestGenerationWorker {
 
+    private static final Logger LOG = Logger.getInstance(TestGenerationWorker.class);
+
     private static final int    MAX_ITERATIONS = 5;
     private static final double TARGET_RATIO   = 0.90;   // 90 %
+    private static final int    MIN_CUT_TOKENS = 1_000;  // below this the CUT is no longer worth sending
+
+    private static final Executor POOL = AppExecutorUtil.getAppExecutorService();
+
+    public static @NotNull CompletableFuture<GenerationOutcome> process(Project project, PsiClass cut, @NotNull ProgressIndicator ind,
+                                                                        PsiDirectory testRoot, @NotNull GenerationRun run) {
+        return onEdt(project, () -> resolveTestPackageDir(project, testRoot, cut)).thenComposeAsync(packageDir -> {
+            if (packageDir == null) {
+                ind.setText2("Cannot determine package for CUT");
+                run.metrics().classFinished(ReadAction.compute(cut::getQualifiedName), GenerationOutcome.FAILED.name(), 0, 0, 0);
+                return CompletableFuture.completedFuture(GenerationOutcome.FAILED);
+            }
 
-    public static void process(Project project, PsiClass cut, @NotNull ProgressIndicator ind, PsiDirectory testRoot) {
+            String cutName        = ReadAction.compute(cut::getName);
+            String testFileName   = cutName + "Test.java";
+            String qualifiedName  = ReadAction.compute(cut::getQualifiedName);
+            String sourceHash     = ReadAction.compute(() -> Hashes.sha256(cut.getContainingFile().getText()));
+
+            GenerationManifest manifest = GenerationManifest.getInstance(project);
+            if (run.skipUnchanged() && manifest.isUpToDate(qualifiedName, sourceHash, testHash(packageDir, testFileName))) {
+                ind.setText2(cutName + ": unchanged since last run, skipped");
+                run.metrics().classFinished(qualifiedName, GenerationOutcome.SKIPPED.name(), 0, 0, 0);
+                return CompletableFuture.completedFuture(GenerationOutcome.SKIPPED);
+            }
+            manifest.record(qualifiedName, sourceHash, null, GenerationOutcome.IN_PROGRESS);
+
+            long started = System.currentTimeMillis();
+            Generation generation = new Generation(project, cut, cutName, qualifiedName, ind, packageDir, testFileName, run);
+            return generation.next()
+                    .exceptionallyCompose(error -> generation.restore().handle((restored, restoreError) -> {
+                        if (restoreError != null) LOG.info("JAIPilot: could not restore " + testFileName + ": " + restoreError);
+                        return outcomeOf(project, cutName, ind, error);
+                    }))
+                    .thenApplyAsync(outcome -> {
+                        manifest.record(qualifiedName, sourceHash, testHash(packageDir, testFileName), outcome,
+                                System.currentTimeMillis() - started);
+                        run.metrics().classFinished(qualifiedName, outcome.name(),
+                                generation.compileAttempt, generation.executeAttempt, generation.coverageAttempt);
+                        return outcome;
+                    }, POOL);
+        }, POOL);
+    }
 
-        PsiDirectory packageDir = resolveTestPackageDir(project, testRoot, cut);
-        if (packageDir == null) {
-            ind.setText2("Cannot determine package for CUT");
-            return;
+    /** Expected ways for a class to end early; anything else is a bug and propagates. */
+    private static GenerationOutcome outcomeOf(Project project, String cutName, ProgressIndicator ind, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ProcessCanceledException) {
+            return GenerationOutcome.IN_PROGRESS;
         }
+        if (cause instanceof PromptTooLargeException) {
+            ind.setText2(cutName + ": prompt exceeds the model's input window, skipped");
+            return GenerationOutcome.FAILED;
+        }
+        if (cause instanceof JAIPilotLLM.LLMFailedException) {
+            ind.setText2(cutName + ": model request failed");
+            NotificationGroupManager.getInstance()
+                    .getNotificationGroup("JAIPilot - AI Unit Test Generator Feedback")
+                    .createNotification("Could not generate tests for " + cutName, cause.getMessage(), NotificationType.WARNING)
+                    .notify(project);
+            return GenerationOutcome.FAILED;
+        }
+        throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+    }
+
+    /**
+     * The fix-and-retry loop of one class; each {@link #next()} is one iteration. Iterations work on
+     * {@link #draft}, a plain string: repairs are spliced into non-physical copies, and the real test
+     * file only receives a draft when the project build and the test JVM need it on disk – without
+     * a command, undo entry or reformat. {@link #finish} then puts the {@link #original} back and makes
+     * the one undoable write of the run on top of it, so Undo returns to the user's test. A class that
+     * is cancelled or ends with an error gets its original back instead ({@link #restore}).
+     */
+    private static final class Generation {
+        private final Project project;
+        private final PsiClass cut;
+        private final String cutName;
+        private final String qualifiedName;     // key of this class in the run's metrics
+        private final ProgressIndicator ind;
+        private final PsiDirectory packageDir;
+        private final String testFileName;
+        private final GenerationRun run;
+        private final StreamListener listener;
+        private final @Nullable Module module;
+
+        private int compileAttempt, executeAttempt, coverageAttempt;
+        private final @Nullable String original; // the test file's content before this run, null if there was none
+        private @Nullable String draft;          // current version of the test class, on disk or not
+        private boolean staged;                  // the real file has received an unformatted draft
+        private String bestSource;               // best passing version so far, restored if later iterations break it
+        private double bestCoverage = -1;
+        private String rejectedSource, rejectedErrors;   // last answer, if it failed the in-memory compile
+        private String abortReason;              // why the last reply was cut off while streaming
+        private boolean prechecked;              // the draft already passed the in-memory compile
 
-        String testFileName   = cut.getName() + "Test.java";
-        String promptUrl      = "https://raw.githubusercontent.com/skrcode/java-auto-unit-tests/refs/heads/main/src/main/resources/base-prompt";
-        String promptTemplate = PromptBuilder.loadPromptFromUrl(promptUrl);
+        Generation(Project project, PsiClass cut, String cutName, String qualifiedName, ProgressIndicator ind,
+                   PsiDirectory packageDir, String testFileName, GenerationRun run) {
+            this.project = project;
+            this.cut = cut;
+            this.cutName = cutName;
+            this.qualifiedName = qualifiedName;
+            this.ind = ind;
+            this.packageDir = packageDir;
+            this.testFileName = testFileName;
+            this.run = run;
+            this.module = ReadAction.compute(() -> ModuleUtilCore.findModuleForPsiElement(packageDir));
+            this.original = ReadAction.compute(() -> {
+                PsiFile existing = packageDir.findFile(testFileName);
+                return existing == null ? null : existing.getText();
+            });
+            this.draft = original;
+            TestPreview preview = run.livePreview() ? new TestPreview(project, testFileName) : null;
+            this.listener = new StreamListener() {
+                @Override
+                public void onProgress(int chars, @NotNull Supplier<String> partial) {
+                    ind.checkCanceled();             // aborts the stream, and with it the HTTP response
+                    ind.setText2(cutName + ": receiving reply (" + chars + " chars)");
+                    if (preview != null) preview.onProgress(chars, partial);
+                }
+
+                @Override
+                public boolean isCancelled() {       // ends a wait for the rate limiter
+                    return ind.isCanceled();
+                }
+            };
+        }
 
-        for(int compileAttempt = 0, executeAttempt = 0;
-            compileAttempt < MAX_ITERATIONS && executeAttempt < MAX_ITERATIONS && !ind.isCanceled(); ) {
+        CompletableFuture<GenerationOutcome> next() {
+            if (compileAttempt >= MAX_ITERATIONS || executeAttempt >= MAX_ITERATIONS || ind.isCanceled()) return finish();
 
-            int totalAttempts = compileAttempt + executeAttempt + 1;
-            ind.setText2("Iteration " + totalAttempts);
-            Ref<PsiFile> testFile = Ref.create(packageDir.findFile(testFileName));
+            ind.setText2(cutName + ": iteration " + (compileAttempt + executeAttempt + coverageAttempt + 1));
             ContextModel ctx = ReadAction.compute(() -> ContextExtractor.buildContext(cut));
-            ctx.existingTestSource = testFile.get() == null ? null : testFile.get().getText();
+            ctx.existingTestSource = draft;
 
-            if(testFile.get() == null) {
-                executeAIActionForAttempt(project, ctx, testFile, packageDir, promptTemplate, testFileName);
+            if (rejectedSource != null) {           // the last answer never became the draft
+                ctx.existingTestSource = rejectedSource;
+                ctx.errorMessage = FailureDistiller.compileErrors(rejectedErrors, testFileName, rejectedSource);
+                rejectedSource = rejectedErrors = null;
                 compileAttempt++;
-                continue;
+                return then(regenerate(ctx));
+            }
+            if (abortReason != null) {              // the last reply was unusable and never arrived in full
+                ctx.errorMessage = "Your previous reply could not be used: " + abortReason
+                        + ". Reply with the complete test class in the outputTestClass field.";
+                abortReason = null;
+                compileAttempt++;
+                return then(regenerate(ctx));
+            }
+            if (draft == null) {
+                compileAttempt++;
+                return then(regenerate(ctx));
             }
 
-            PsiClass psiClass = getClassForExecution(testFile);
+            String quickErrors = prechecked ? null : compileErrors(draft);
+            prechecked = false;
+            if (quickErrors != null) return afterCompile(ctx, null, quickErrors);
 
-            String compileMsg = CoverageJacocoUtil.compileJUnitClass(project, psiClass);
+            return stage().thenComposeAsync(testFile -> {
+                PsiClass testClass = ReadAction.compute(() -> getClassForExecution(testFile));
+                RunMetrics.Span span = run.metrics().start(Phase.COMPILE, qualifiedName);
+                return CompileBatcher.getInstance(project).compile(testClass)
+                        .whenComplete((compileMsg, error) -> succeededIf(span, error == null && compileMsg.isEmpty()))
+                        .thenComposeAsync(compileMsg -> afterCompile(ctx, testClass, compileMsg), POOL);
+            }, POOL);
+        }
+
+        /** @param testClass the staged test class, {@code null} if the draft was only compiled in memory */
+        private CompletableFuture<GenerationOutcome> afterCompile(ContextModel ctx, @Nullable PsiClass testClass, String compileMsg) {
             if (!compileMsg.isEmpty()) {
-                ctx.errorMessage = compileMsg;
-                executeAIActionForAttempt(project, ctx, testFile, packageDir, promptTemplate, testFileName);
+                String source = draft;
+                ctx.errorMessage = FailureDistiller.compileErrors(compileMsg, testFileName, source);
+                Set<String> broken = ReadAction.compute(() -> FailureLocator.methodsWithCompileErrors(draftClass(source), compileMsg));
                 compileAttempt++;
-                continue;
+                return then(repairOrRegenerate(ctx, broken));
             }
+            if (ind.isCanceled()) return finish();   // do not launch another test JVM
+            RunMetrics.Span span = run.metrics().start(Phase.EXECUTE, qualifiedName);
+            return ExecutionBatcher.getInstance(project).execute(testClass, cut)
+                    .whenComplete((result, error) -> succeededIf(span, error == null && result.tests().passed()))
+                    .thenComposeAsync(result -> afterExecution(ctx, testClass, result), POOL);
+        }
 
-            String executeMsg = CoverageJacocoUtil.executeJUnitClass(project, psiClass);
-            if(!executeMsg.isEmpty()){
-                ctx.errorMessage = executeMsg;
-                executeAIActionForAttempt(project, ctx, testFile, packageDir, promptTemplate, testFileName);
+        private CompletableFuture<GenerationOutcome> afterExecution(ContextModel ctx, PsiClass testClass,
+                                                                    ExecutionBatcher.Result result) {
+            if (!result.tests().passed()) {
+                ctx.errorMessage = FailureDistiller.testFailures(result.tests(), testFileName, draft, qualifiedName);
+                Set<String> failed = ReadAction.compute(() -> FailureLocator.failedTestMethods(testClass, result.tests()));
                 executeAttempt++;
-                continue;
+                return then(repairOrRegenerate(ctx, failed));
+            }
+
+            // ── tests pass: iterate on coverage until the target is met ─────────────
+            CoverageReport coverage = result.coverage();
+            if (coverage == null || coverage.lineRatio() > bestCoverage) {
+                bestSource   = draft;
+                bestCoverage = coverage == null ? 1 : coverage.lineRatio();
             }
-            break;
-//
-//      outputCoverage = coverage(testclass)
-//      if(outputCoverage < 90%)
-//          testClass = genAI(baseclass,testclass,"",outputCoverage)
-//          iterations = iterations + 1
-//          write(testClass)
-//	        continue
+            if (coverage == null || coverage.lineRatio() >= TARGET_RATIO) return finish();   // not measured, or good enough
+            if (coverageAttempt >= MAX_ITERATIONS) return finish();
+
+            ind.setText2(cutName + ": line coverage " + Math.round(coverage.lineRatio() * 100) + "%, adding tests");
+            ctx.outputCoverage = ReadAction.compute(() -> coverage.describe(cut.getContainingFile().getText()));
+            coverageAttempt++;
+            return then(regenerate(ctx));
+        }
+
+        /**
+         * Commits the outcome to the real test file: the best passing version if there is one, else the
+         * last draft the user may want to look at; a class cancelled before it passed gets its original
+         * back. This is the only undoable, reformatting write of the run.
+         */
+        private CompletableFuture<GenerationOutcome> finish() {
+            if (bestSource == null && ind.isCanceled()) return restore().thenApply(v -> GenerationOutcome.IN_PROGRESS);
+            GenerationOutcome outcome = bestSource != null ? GenerationOutcome.SUCCESS : GenerationOutcome.FAILED;
+            String result = bestSource != null ? bestSource : draft;
+            if (result == null) return CompletableFuture.completedFuture(outcome);
+            return onEdt(project, () -> {
+                if (!staged && result.equals(original)) return null;                              // untouched
+                RunMetrics.Span span = run.metrics().start(Phase.WRITE, qualifiedName).bytes(result.length());
+                if (staged) TestGenerationWorker.stage(project, original, packageDir, testFileName);  // the command starts from the original
+                staged = false;
+                PsiFile written = write(project, packageDir.findFile(testFileName), result, packageDir, testFileName);
+                span.end();
+                return written;
+            }).thenApply(written -> outcome);
+        }
+
+        /** Puts the test file back as it was before this run, if a draft was staged; leaves no undo entry. */
+        CompletableFuture<Void> restore() {
+            if (!staged) return CompletableFuture.completedFuture(null);
+            return onEdt(project, () -> {
+                TestGenerationWorker.stage(project, original, packageDir, testFileName);
+                staged = false;
+                return null;
+            });
+        }
+
+        /** Runs the next iteration once {@code step} is done. */
+        private CompletableFuture<GenerationOutcome> then(CompletableFuture<?> step) {
+            return step.thenComposeAsync(done -> next(), POOL);
+        }
+
+        /**
+         * Asks only for the failing methods when they are known and few, and splices the answer into the
+         * draft; falls back to regenerating the whole class when that is not possible or the reply cannot
+         * be applied.
+         */
+        private CompletableFuture<?> repairOrRegenerate(ContextModel ctx, @Nullable Set<String> failingMethods) {
+            if (failingMethods == null) return regenerate(ctx);
+
+            ind.setText2(cutName + ": repairing " + failingMethods.size() + " test method(s)");
+            String source = draft;
+            ctx.failingMethods = ReadAction.compute(() -> FailureLocator.sourceOf(draftClass(source), failingMethods));
+            return ask(ctx, PromptBuilder::buildRepair).thenComposeAsync(patch -> {
+                if (patch == null) return CompletableFuture.completedFuture(null);   // aborted, see next()
+                String patched = ReadAction.compute(() -> TestPatcher.apply(project, testFileName, source, patch, failingMethods));
+                if (patched == null) return regenerate(ctx);
+                draft = patched;
+                return CompletableFuture.completedFuture(null);
+            }, POOL);
+        }
+
+        private CompletableFuture<?> regenerate(ContextModel ctx) {
+            return ask(ctx, c -> PromptBuilder.build(run.basePrompt().text(), c)).thenAccept(testSource -> {
+                if (testSource == null) return;     // aborted, see next()
+                String errors = compileErrors(testSource);
+                if (errors != null) {
+                    ind.setText2(cutName + ": reply does not compile, asking again");
+                    rejectedSource = testSource;
+                    rejectedErrors = errors;
+                    return;
+                }
+                draft = testSource;
+                prechecked = true;
+            });
+        }
+
+        /** In-memory compile errors of {@code source}; {@code null} if it compiles or cannot be checked here. */
+        private @Nullable String compileErrors(String source) {
+            RunMetrics.Span span = run.metrics().start(Phase.PRECOMPILE, qualifiedName).bytes(source.length());
+            String errors = InMemoryCompiler.getInstance(project).check(module, source);
+            succeededIf(span, errors == null || errors.isEmpty());
+            return errors == null || errors.isEmpty() ? null : errors;
+        }
+
+        /**
+         * The model's reply to the rendered prompt, or {@code null} when the stream was cut off as unusable;
+         * the reason is then kept in {@link #abortReason} and the next iteration asks again.
+         */
+        private CompletableFuture<String> ask(ContextModel ctx, Function<ContextModel, String> render) {
+            return CompletableFuture.supplyAsync(() -> {
+                RunMetrics.Span build = run.metrics().start(Phase.PROMPT_BUILD, qualifiedName);
+                String prompt = fitToWindow(cut, ctx, render);
+                build.bytes(prompt.length()).end();
+                return JAIPilotLLM.invokeAIGemini(prompt, qualifiedName, run, listener);
+            }, POOL).exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (!(cause instanceof JAIPilotLLM.ReplyRejectedException)) {
+                    throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                }
+                ind.setText2(cutName + ": reply was unusable, asking again");
+                abortReason = cause.getMessage();
+                return null;
+            });
+        }
+
+        /** Puts the draft on disk for the build and the test run. */
+        private CompletableFuture<PsiFile> stage() {
+            String source = draft;
+            if (!source.equals(original)) staged = true;
+            return onEdt(project, () -> {
+                RunMetrics.Span span = run.metrics().start(Phase.WRITE, qualifiedName).bytes(source.length());
+                PsiFile testFile = TestGenerationWorker.stage(project, source, packageDir, testFileName);
+                span.end();
+                return testFile;
+            });
+        }
+
+        private static void succeededIf(RunMetrics.Span span, boolean succeeded) {
+            if (succeeded) span.end();
+            else span.fail();
+        }
+
+        /** A non-physical copy of {@code source}, for locating failures; read action only. */
+        private PsiClass draftClass(String source) {
+            return getClassForExecution(PsiFileFactory.getInstance(project)
+                    .createFileFromText(testFileName, JavaFileType.INSTANCE, source));
         }
     }
 
-    private static void executeAIActionForAttempt(Project project, ContextModel ctx, Ref<PsiFile> testFile, PsiDirectory packageDir, String promptTemplate, String testFileName) {
-        String prompt     = PromptBuilder.build(promptTemplate, ctx);
-        String testSource = JAIPilotLLM.invokeAIGemini(prompt);
-        write(project, testFile, testSource, packageDir, testFileName);
+    private static @Nullable String testHash(PsiDirectory packageDir, String testFileName) {
+        return ReadAction.compute(() -> {
+            PsiFile test = packageDir.findFile(testFileName);
+            return test == null ? null : Hashes.sha256(test.getText());
+        });
     }
 
-    private static void write(Project project, Ref<PsiFile> testFile, String testSource, PsiDirectory packageDir, String testFileName) {
-        WriteCommandAction.runWriteCommandAction(project, () -> {
+    /**
+     * Renders the prompt and, while it would not leave the model room for a full reply, re-renders the
+     * CUT at half the token budget – the existing test and error output cannot be shortened.
+     */
+    private static String fitToWindow(PsiClass cut, ContextModel ctx, Function<ContextModel, String> render) {
+        int maxTokens = LLMProviders.gemini().profile().maxPromptTokens();
+        String prompt = render.apply(ctx);
+        int tokens = Tokens.estimate(prompt);
+        for (int budget = Tokens.estimate(ctx.fullSource) / 2; tokens > maxTokens; budget /= 2) {
+            if (budget < MIN_CUT_TOKENS) throw new PromptTooLargeException(tokens, maxTokens);
+            int cutBudget = budget;
+            ctx.fullSource = ReadAction.compute(() -> ContextExtractor.compactSource(cut, cutBudget));
+            prompt = render.apply(ctx);
+            tokens = Tokens.estimate(prompt);
+        }
+        return prompt;
+    }
+
+    private static final class PromptTooLargeException extends RuntimeException {
+        PromptTooLargeException(int tokens, int maxTokens) {
+            super("Prompt of ~" + tokens + " tokens exceeds the model's limit of " + maxTokens);
+        }
+    }
+
+    /**
+     * Runs {@code action} on the EDT without parking the calling thread until the EDT gets to it. If the
+     * project is disposed first, the action is dropped and the future fails with a
+     * {@link ProcessCanceledException}, so the class still ends and frees its slot.
+     */
+    private static <T> CompletableFuture<T> onEdt(Project project, Supplier<T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Disposable whenDisposed = () -> result.completeExceptionally(new ProcessCanceledException());
+        if (!Disposer.tryRegister(project, whenDisposed)) {
+            result.completeExceptionally(new ProcessCanceledException());
+            return result;
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            try {
+                result.complete(action.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                Disposer.dispose(whenDisposed);
+            }
+        }, project.getDisposed());
+        return result;
+    }
+
+    /**
+     * EDT only. Puts an intermediate version on disk as is: outside any command, so it leaves no undo
+     * entry, and without optimizing imports or reformatting. A {@code null} source removes the file,
+     * for restoring the state before a run that created it.
+     */
+    private static @Nullable PsiFile stage(Project project, @Nullable String testSource, PsiDirectory packageDir, String testFileName) {
+        Ref<PsiFile> staged = new Ref<>();
+        CommandProcessor.getInstance().runUndoTransparentAction(() -> ApplicationManager.getApplication().runWriteAction(() -> {
+            PsiFile testFile = packageDir.findFile(testFileName);
+            if (testSource == null) {
+                if (testFile != null) testFile.delete();
+                return;
+            }
+            if (testFile == null) {
+                staged.set(createAndAddFile(project, packageDir, testFileName, testSource));
+                return;
+            }
+            Document doc = PsiDocumentManager.getInstance(project).getDocument(testFile);
+            if (doc == null) {
+                staged.set(overwrite(packageDir, testFile, testSource));
+                return;
+            }
+            if (!doc.getText().equals(testSource)) {
+                doc.setText(testSource);
+                PsiDocumentManager.getInstance(project).commitDocument(doc);
+            }
+            FileDocumentManager.getInstance().saveDocument(doc);
+            staged.set(testFile);
+        }));
+        return staged.get();
+    }
+
+    /** EDT only. The final, undoable write of a class: replaces the content, optimizes imports and reformats once. */
+    private static PsiFile write(Project project, @Nullable PsiFile testFile, String testSource, PsiDirectory packageDir, String testFileName) {
+        return WriteCommandAction.writeCommandAction(project).withName("Generate " + testFileName).compute(() -> {
             PsiFile newPsi;
-            if (testFile.get() != null) {           // update existing
+            if (testFile != null) {                 // update existing
                 PsiDocumentManager docMgr = PsiDocumentManager.getInstance(project);
-                var doc = docMgr.getDocument(testFile.get());
+                var doc = docMgr.getDocument(testFile);
                 if (doc != null) {
                     doc.setText(testSource);
                     docMgr.commitDocument(doc);
-                    newPsi = testFile.get();
-                } else {                            // fallback: replace file completely
-                    testFile.get().delete();
-                    newPsi = createAndAddFile(project, packageDir, testFileName, testSource);
+                    newPsi = testFile;
+                } else {                            // fallback: no document, rewrite the file in place
+                    newPsi = overwrite(packageDir, testFile, testSource);
                 }
             } else {                                // create fresh file
                 newPsi = createAndAddFile(project, packageDir, testFileName, testSource);
             }
             JavaCodeStyleManager.getInstance(project).optimizeImports(newPsi);
             CodeStyleManager.getInstance(project).reformat(newPsi);
-            testFile.set(newPsi);                   // 🔑 update the Ref to the NEW file
+            return newPsi;
         });
     }
 
+    /** Write action only. For a file without a document: replaces its content rather than deleting it. */
+    private static PsiFile overwrite(PsiDirectory packageDir, PsiFile testFile, String source) {
+        try {
+            VfsUtil.saveText(testFile.getVirtualFile(), source);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return packageDir.findFile(testFile.getName());
+    }
+
     private static @Nullable PsiDirectory resolveTestPackageDir(Project project,
                                                                 PsiDirectory testRoot,
                                                                 PsiClass cut) {
@@ -121,8 +525,7 @@ public final class TestGenerationWorker {
         return (PsiFile) dir.add(file);
     }
 
-    private static PsiClass getClassForExecution(Ref<PsiFile> testFile) {
-        PsiFile psiFile = testFile.get();
+    private static PsiClass getClassForExecution(PsiFile psiFile) {
         if (!(psiFile instanceof PsiClassOwner owner)) throw new IllegalArgumentException( "Class not found");
 
         PsiClass[] classes = owner.getClasses();
@@ -0,0 +1,100 @@
+package com.github.skrcode.javaautounittests;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splices a repair reply into a draft of a test class. The reply is a class containing only the fixed
+ * methods plus whatever helpers, fields and imports they need. Of the methods already in the test
+ * class, only the failing ones are replaced; everything else – and its formatting – stays untouched.
+ * <p>
+ * The splice happens on a non-physical copy, so a read action is enough and the real test file, its
+ * undo history and the indexes never see intermediate versions.
+ */
+final class TestPatcher {
+
+    /**
+     * Callers must hold a read action.
+     *
+     * @param failing names of the methods the repair was asked for
+     * @return the patched source, or {@code null} if the reply cannot be parsed or fixes none of them
+     */
+    static @Nullable String apply(@NotNull Project project, @NotNull String testFileName, @NotNull String testSource,
+                                  @NotNull String patchSource, @NotNull Set<String> failing) {
+        PsiFileFactory factory = PsiFileFactory.getInstance(project);
+        if (!(factory.createFileFromText(testFileName, JavaFileType.INSTANCE, testSource) instanceof PsiJavaFile target)
+                || target.getClasses().length == 0) return null;
+        PsiJavaFile patch = (PsiJavaFile) factory.createFileFromText("Patch.java", JavaFileType.INSTANCE, patchSource);
+        if (patch.getClasses().length == 0 || PsiTreeUtil.hasErrorElements(patch)) return null;
+
+        PsiClass targetClass = target.getClasses()[0];
+        PsiClass patchClass  = patch.getClasses()[0];
+
+        // decide everything before touching the draft
+        List<PsiMethod[]> replacements = new ArrayList<>();    // {existing, fixed}
+        List<PsiMember> additions = new ArrayList<>();
+        for (PsiMethod fixed : patchClass.getMethods()) {
+            PsiMethod existing = counterpart(targetClass, fixed);
+            if (existing == null) additions.add(fixed);
+            else if (failing.contains(existing.getName())) replacements.add(new PsiMethod[]{existing, fixed});
+        }
+        if (replacements.isEmpty()) return null;
+        for (PsiField field : patchClass.getFields()) {
+            if (targetClass.findFieldByName(field.getName(), false) == null) additions.add(0, field);
+        }
+
+        List<PsiElement> changed = new ArrayList<>();
+        for (PsiMethod[] r : replacements) changed.add(r[0].replace(r[1]));
+        for (PsiMember member : additions) changed.add(targetClass.add(member));
+        addMissingImports(target, patch);
+
+        JavaCodeStyleManager javaStyle = JavaCodeStyleManager.getInstance(project);
+        CodeStyleManager style = CodeStyleManager.getInstance(project);
+        for (PsiElement e : changed) {
+            style.reformat(javaStyle.shortenClassReferences(e));
+        }
+        return target.getText();
+    }
+
+    private static @Nullable PsiMethod counterpart(PsiClass target, PsiMethod method) {
+        for (PsiMethod candidate : target.findMethodsByName(method.getName(), false)) {
+            if (sameParameterTypes(candidate, method)) return candidate;
+        }
+        return null;
+    }
+
+    private static boolean sameParameterTypes(PsiMethod a, PsiMethod b) {
+        PsiParameter[] pa = a.getParameterList().getParameters();
+        PsiParameter[] pb = b.getParameterList().getParameters();
+        if (pa.length != pb.length) return false;
+        for (int i = 0; i < pa.length; i++) {
+            if (!pa[i].getType().getPresentableText().equals(pb[i].getType().getPresentableText())) return false;
+        }
+        return true;
+    }
+
+    private static void addMissingImports(PsiJavaFile target, PsiJavaFile patch) {
+        PsiImportList targetImports = target.getImportList();
+        PsiImportList patchImports  = patch.getImportList();
+        if (targetImports == null || patchImports == null) return;
+
+        Set<String> present = new HashSet<>();
+        for (PsiImportStatementBase stmt : targetImports.getAllImportStatements()) present.add(stmt.getText());
+        for (PsiImportStatementBase stmt : patchImports.getAllImportStatements()) {
+            if (present.add(stmt.getText())) targetImports.add(stmt);
+        }
+    }
+
+    private TestPatcher() {}
+}
@@ -0,0 +1,56 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.llm.StreamListener;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.testFramework.LightVirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Supplier;
+
+/**
+ * In-memory editor tab that shows a test class while its reply is still streaming in. Updates are
+ * throttled so a fast stream does not flood the EDT; nothing touches the real test file.
+ */
+final class TestPreview implements StreamListener {
+
+    private static final long MIN_INTERVAL_MS = 250;
+
+    private final Project project;
+    private final LightVirtualFile file;
+    private volatile long lastPush;
+    private boolean opened;                           // EDT only
+
+    TestPreview(Project project, String testFileName) {
+        this.project = project;
+        this.file = new LightVirtualFile(testFileName, JavaFileType.INSTANCE, "");
+    }
+
+    @Override
+    public void onProgress(int receivedChars, @NotNull Supplier<String> partial) {
+        long now = System.currentTimeMillis();
+        if (now - lastPush < MIN_INTERVAL_MS) return;
+        lastPush = now;
+        show(partial.get());
+    }
+
+    private void show(String text) {
+        String normalized = StringUtil.convertLineSeparators(text);
+        ApplicationManager.getApplication().invokeLater(() -> {
+            Document doc = FileDocumentManager.getInstance().getDocument(file);
+            if (doc == null) return;
+            ApplicationManager.getApplication().runWriteAction(() ->
+                    CommandProcessor.getInstance().runUndoTransparentAction(() -> doc.setText(normalized)));
+            if (!opened) {
+                opened = true;
+                FileEditorManager.getInstance(project).openFile(file, false);
+            }
+        }, project.getDisposed());
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.skrcode.javaautounittests;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Results of one test class in a run, plus errors of the run itself (JVM did not start, timeout)
+ * that cannot be pinned on a test.
+ */
+public record TestReport(@NotNull List<TestResult> tests, @NotNull List<String> errors) {
+
+    static final String FAILED_TEST_PREFIX = "Failed test: ";
+    static final String FAILED_CLASS_PREFIX = "Failed: ";
+
+    public static @NotNull TestReport error(@NotNull String message) {
+        return new TestReport(List.of(), List.of(message));
+    }
+
+    /** Error for a class the run produced no test events for; such a class must not count as passed. */
+    static @NotNull String noTestsRun(@NotNull String testClass) {
+        return "No tests were run for " + testClass + "; check that it has @Test methods JUnit can discover";
+    }
+
+    public boolean passed() {
+        return errors.isEmpty() && tests.stream().noneMatch(t -> t.status().failed());
+    }
+
+    public @NotNull List<TestResult> failed() {
+        return tests.stream().filter(t -> t.status().failed()).toList();
+    }
+}
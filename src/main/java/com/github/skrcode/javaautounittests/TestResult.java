@@ -0,0 +1,31 @@
+package com.github.skrcode.javaautounittests;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Outcome of one test – or of a whole test class, when {@code method} is {@code null} (class could
+ * not be loaded, {@code @BeforeAll} failed). {@code message}, {@code trace} and {@code output} are
+ * cut to fixed sizes by {@link TeamCityFailureRouter}, so a report stays small however much a test prints.
+ *
+ * @param className      qualified name of the generated test class
+ * @param method         test method, {@code null} for class-level results
+ * @param name           display name as the runner reported it
+ * @param durationMillis as reported by the runner, else measured between start and finish
+ * @param output         the last lines the test printed, for failed tests only
+ */
+public record TestResult(@NotNull String className, @Nullable String method, @NotNull String name, @NotNull Status status,
+                         long durationMillis, @NotNull String message, @NotNull String trace, @NotNull String output) {
+
+    public enum Status {
+        PASSED,
+        FAILED,
+        IGNORED,
+        /** Started but never finished: the JVM crashed, hung or was stopped. */
+        INCOMPLETE;
+
+        public boolean failed() {
+            return this == FAILED || this == INCOMPLETE;
+        }
+    }
+}
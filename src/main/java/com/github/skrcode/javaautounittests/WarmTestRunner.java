@@ -0,0 +1,193 @@
+package com.github.skrcode.javaautounittests;
+
+import com.github.skrcode.javaautounittests.runner.WarmRunnerMain;
+import com.intellij.execution.CantRunException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.configurations.JavaParameters;
+import com.intellij.execution.process.OSProcessHandler;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.CompilerModuleExtension;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.platform.commons.util.ReflectionUtils;
+import org.junit.platform.engine.TestEngine;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one long-lived test JVM ({@link WarmRunnerMain}) per module for the fix-and-retry loop.
+ * The module classpath and JIT stay warm between iterations; only the module's test output is
+ * reloaded per request. Daemons live for one bulk run ({@link #stopAll()}) so edits to production
+ * code between runs are always picked up.
+ * <p>
+ * Any failure to start or talk to a daemon, or one the daemon reports about itself (see
+ * {@link WarmRunnerMain#RUNNER_FAILURE}), makes {@link #execute} return {@code null}; callers then
+ * fall back to a regular JUnit run.
+ */
+public final class WarmTestRunner implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(WarmTestRunner.class);
+    private static final int STARTUP_TIMEOUT_S = 30;
+    private static final int RUN_TIMEOUT_MS    = 5 * 60 * 1000;
+
+    /** Started or starting daemons; a start runs outside the map so it never blocks other modules. */
+    private final Map<Module, CompletableFuture<Daemon>> daemons = new ConcurrentHashMap<>();
+
+    public static WarmTestRunner getInstance(Project project) {
+        return project.getService(WarmTestRunner.class);
+    }
+
+    /**
+     * Runs already-compiled test classes of {@code module}; {@code null} if the daemon is unusable.
+     * If {@code execFile} is given, the coverage collected during this run is written to it.
+     */
+    public @Nullable Map<String, TestReport> execute(@NotNull Module module, @NotNull List<String> qualifiedNames,
+                                                 @Nullable Path execFile) {
+        CompletableFuture<Daemon> created = new CompletableFuture<>();
+        CompletableFuture<Daemon> daemon = daemons.putIfAbsent(module, created);
+        if (daemon == null) {
+            daemon = created;
+            try {
+                created.complete(Daemon.start(module));
+            } catch (Throwable t) {
+                created.completeExceptionally(t);
+            }
+        }
+        try {
+            return daemon.get().run(qualifiedNames, execFile);    // another caller's start is bounded by STARTUP_TIMEOUT_S
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            LOG.info("JAIPilot: warm runner unavailable for " + module.getName() + ", using a regular JUnit run", e);
+            if (daemons.remove(module, daemon)) daemon.thenAccept(Daemon::close);
+            return null;
+        }
+    }
+
+    /** Stops every daemon; one still starting is stopped as soon as it is up. */
+    public void stopAll() {
+        daemons.values().forEach(daemon -> daemon.thenAccept(Daemon::close));
+        daemons.clear();
+    }
+
+    @Override
+    public void dispose() {
+        stopAll();
+    }
+
+    private static final class Daemon implements Closeable {
+        private final OSProcessHandler process;
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        private Daemon(OSProcessHandler process, Socket socket) throws IOException {
+            this.process = process;
+            this.socket = socket;
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+        }
+
+        static Daemon start(Module module) throws Exception {
+            GeneralCommandLine cmd = ReadAction.compute(() -> commandLine(module));
+            OSProcessHandler handler = new OSProcessHandler(cmd);
+
+            CompletableFuture<Integer> port = new CompletableFuture<>();
+            handler.addProcessListener(new ProcessAdapter() {
+                @Override
+                public void onTextAvailable(@NotNull ProcessEvent e, @NotNull Key outputType) {
+                    String text = e.getText().trim();
+                    if (text.startsWith(WarmRunnerMain.PORT_PREFIX)) {
+                        port.complete(Integer.parseInt(text.substring(WarmRunnerMain.PORT_PREFIX.length()).trim()));
+                    }
+                }
+
+                @Override
+                public void processTerminated(@NotNull ProcessEvent e) {
+                    port.completeExceptionally(new IOException("Warm runner exited with code " + e.getExitCode()));
+                }
+            });
+            handler.startNotify();
+
+            try {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), port.get(STARTUP_TIMEOUT_S, TimeUnit.SECONDS));
+                socket.setSoTimeout(RUN_TIMEOUT_MS);
+                return new Daemon(handler, socket);
+            } catch (Exception e) {
+                handler.destroyProcess();
+                throw e;
+            }
+        }
+
+        /** Module classpath without its own test output, plus the runner and the JUnit Platform Launcher. */
+        private static GeneralCommandLine commandLine(Module module) throws CantRunException {
+            JavaParameters params = new JavaParameters();
+            params.configureByModule(module, JavaParameters.JDK_AND_CLASSES_AND_TESTS);
+
+            String testOutputUrl = CompilerModuleExtension.getInstance(module).getCompilerOutputUrlForTests();
+            if (testOutputUrl == null) throw new CantRunException("Module " + module.getName() + " has no test output");
+            String testOutput = VfsUtilCore.urlToPath(testOutputUrl);
+            params.getClassPath().remove(testOutput);
+
+            // appended last, so the module's own JUnit Platform versions win when it has them
+            for (Class<?> c : List.of(WarmRunnerMain.class, LauncherFactory.class, TestEngine.class,
+                    ReflectionUtils.class, AssertionFailedError.class)) {
+                params.getClassPath().add(PathManager.getJarPathForClass(c));
+            }
+            String coverageAgent = CoverageAgent.daemonVmOption();
+            if (coverageAgent != null) params.getVMParametersList().add(coverageAgent);
+            params.setMainClass(WarmRunnerMain.class.getName());
+            params.getProgramParametersList().add(testOutput);
+            return params.toCommandLine();
+        }
+
+        synchronized Map<String, TestReport> run(List<String> qualifiedNames, @Nullable Path execFile) throws IOException {
+            TeamCityFailureRouter router = new TeamCityFailureRouter(qualifiedNames);
+            out.println("RUN " + String.join(",", qualifiedNames));
+            readUntilEnd(router);
+            if (execFile != null) {
+                out.println("DUMP " + execFile);
+                readUntilEnd(router);
+            }
+            return router.reportsByClass();
+        }
+
+        private void readUntilEnd(TeamCityFailureRouter router) throws IOException {
+            String line, failure = null;
+            while ((line = in.readLine()) != null && !line.equals(WarmRunnerMain.END)) {
+                if (line.startsWith(WarmRunnerMain.RUNNER_FAILURE)) failure = line.substring(WarmRunnerMain.RUNNER_FAILURE.length());
+                else router.accept(line + "\n");
+            }
+            if (line == null) throw new EOFException("Warm runner closed the connection");
+            if (failure != null) throw new IOException("Warm runner failed: " + failure);
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();                     // the runner exits when its connection closes
+            } catch (IOException ignored) {
+            }
+            if (!process.waitFor(2_000)) process.destroyProcess();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline byte-level BPE token counter. Text is split with the cl100k pre-tokenizer pattern and each
+ * piece is merged with the bundled {@code /tokenizer/java-bpe.merges} vocabulary (8k merges trained on
+ * Java sources). The models' own vocabularies are not available offline, so counts are an estimate –
+ * but one that follows the shape of Java code far better than a characters-per-token ratio.
+ * <p>
+ * Thread-safe; counts of recurring pieces (identifiers, keywords, indentation) are memoized.
+ */
+final class BpeTokenizer {
+
+    private static final Pattern PRE_TOKENIZER = Pattern.compile(
+            "'(?i:[sdmt]|ll|ve|re)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+    private static final int MAX_MEMOIZED = 200_000;
+    private static final int MAX_PIECE_BYTES = 256;      // longer pieces (e.g. base64 blobs) are not worth merging
+
+    static final BpeTokenizer JAVA = load("/tokenizer/java-bpe.merges");
+
+    /** {@code left << 32 | right} → merge rank; the merged token's id is {@code 256 + rank}. */
+    private final Map<Long, Integer> ranks;
+    private final Map<String, Integer> memo = new ConcurrentHashMap<>();
+
+    private BpeTokenizer(Map<Long, Integer> ranks) {
+        this.ranks = ranks;
+    }
+
+    int count(@NotNull CharSequence text) {
+        int tokens = 0;
+        Matcher m = PRE_TOKENIZER.matcher(text);
+        while (m.find()) {
+            String piece = m.group();
+            Integer known = memo.get(piece);
+            if (known == null) {
+                known = countPiece(piece);
+                if (memo.size() >= MAX_MEMOIZED) memo.clear();
+                memo.put(piece, known);
+            }
+            tokens += known;
+        }
+        return tokens;
+    }
+
+    private int countPiece(String piece) {
+        byte[] bytes = piece.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_PIECE_BYTES) return (bytes.length + 1) / 2;
+        int[] symbols = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) symbols[i] = bytes[i] & 0xff;
+        int length = symbols.length;
+
+        while (length > 1) {
+            int bestRank = Integer.MAX_VALUE;
+            for (int i = 0; i + 1 < length; i++) {
+                Integer rank = ranks.get(pair(symbols[i], symbols[i + 1]));
+                if (rank != null && rank < bestRank) bestRank = rank;
+            }
+            if (bestRank == Integer.MAX_VALUE) break;
+
+            // merge every occurrence of the best pair, left to right
+            int merged = 256 + bestRank, out = 0;
+            for (int i = 0; i < length; ) {
+                if (i + 1 < length) {
+                    Integer rank = ranks.get(pair(symbols[i], symbols[i + 1]));
+                    if (rank != null && rank == bestRank) {
+                        symbols[out++] = merged;
+                        i += 2;
+                        continue;
+                    }
+                }
+                symbols[out++] = symbols[i++];
+            }
+            length = out;
+        }
+        return length;
+    }
+
+    private static long pair(int left, int right) {
+        return ((long) left << 32) | (right & 0xffffffffL);
+    }
+
+    private static BpeTokenizer load(String resource) {
+        try (InputStream in = BpeTokenizer.class.getResourceAsStream(resource)) {
+            if (in == null) throw new IllegalStateException("Bundled tokenizer " + resource + " is missing");
+            Map<Long, Integer> ranks = new HashMap<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int space = line.indexOf(' ');
+                ranks.put(pair(Integer.parseInt(line.substring(0, space)), Integer.parseInt(line.substring(space + 1))), ranks.size());
+            }
+            return new BpeTokenizer(ranks);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bundled tokenizer " + resource, e);
+        }
+    }
+}
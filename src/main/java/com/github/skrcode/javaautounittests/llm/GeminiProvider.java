@@ -0,0 +1,75 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.skrcode.javaautounittests.ResponseOutput;
+import com.google.common.collect.ImmutableMap;
+import com.google.genai.Client;
+import com.google.genai.ResponseStream;
+import com.google.genai.types.GenerateContentConfig;
+import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.types.Schema;
+import com.google.genai.types.Type;
+import org.jetbrains.annotations.NotNull;
+
+/** Gemini with a JSON response schema; the client, config and reader are built once. */
+final class GeminiProvider implements LLMProvider {
+
+    static final String MODEL = "gemini-2.5-flash-lite-preview-06-17";
+    private static final ModelProfile PROFILE = new ModelProfile(1_048_576, 65_536, 0.10, 0.40, 250, 600);
+
+    private static final int MAX_REPLY_CHARS    = 200_000;
+    private static final int DECLARATION_WINDOW = 8_000;
+
+    /** Thread-safe and pre-resolved for {@link ResponseOutput}, shared by every provider instance. */
+    static final ObjectReader RESPONSE_READER = new ObjectMapper().readerFor(ResponseOutput.class);
+
+    private final Client client;
+    private final GenerateContentConfig config;
+
+    GeminiProvider(String apiKey) {
+        this.client = Client.builder().apiKey(apiKey).build();
+        Schema schema = Schema.builder()
+                .type(Type.Known.OBJECT)
+                .properties(ImmutableMap.of("outputTestClass",
+                        Schema.builder().type(Type.Known.STRING).description("Output Test Class").build()))
+                .build();
+        this.config = GenerateContentConfig.builder()
+                .responseMimeType("application/json")
+                .candidateCount(1)
+                .responseSchema(schema)
+                .build();
+    }
+
+    @Override
+    public @NotNull String modelId() {
+        return MODEL;
+    }
+
+    @Override
+    public @NotNull ModelProfile profile() {
+        return PROFILE;
+    }
+
+    @Override
+    public @NotNull String generateTestClass(@NotNull String prompt) throws Exception {
+        GenerateContentResponse response = client.models.generateContent(MODEL, prompt, config);
+        ResponseOutput parsed = RESPONSE_READER.readValue(response.text());
+        return parsed.outputTestClass;
+    }
+
+    @Override
+    public @NotNull String streamTestClass(@NotNull String prompt, @NotNull StreamListener listener) throws Exception {
+        StreamingTestClassParser parser = new StreamingTestClassParser(MAX_REPLY_CHARS, DECLARATION_WINDOW);
+        // leaving the try block – normally or through an early abort – closes the HTTP response
+        try (ResponseStream<GenerateContentResponse> stream = client.models.generateContentStream(MODEL, prompt, config)) {
+            for (GenerateContentResponse chunk : stream) {
+                String text = chunk.text();
+                if (text == null || text.isEmpty()) continue;
+                parser.feed(text);
+                listener.onProgress(parser.decodedLength(), parser::partial);
+            }
+        }
+        return parser.finish();
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Cuts tail latency with hedged requests: when a request is still running at the configured
+ * percentile of recent latencies, an identical request is sent and the first reply that arrives wins.
+ * The loser is cancelled – a streaming loser is aborted at its next chunk, which closes its HTTP
+ * response. Extra spend is capped: every request earns {@code maxExtraRatio} of a hedge, and a hedge
+ * is only sent when a whole one has been earned.
+ * <p>
+ * Both requests pass through the wrapped provider, so the rate limiter counts hedges too. Latencies
+ * and the hedge deadline are measured from the limiter's admission, not from the call: time spent
+ * queueing for a permit says nothing about the provider's tail. No hedge is sent while the limiter
+ * is backing off, since it would only add load to an account that is already being throttled.
+ */
+final class HedgedProvider implements LLMProvider {
+
+    private static final Logger LOG = Logger.getInstance(HedgedProvider.class);
+
+    private static final int    WINDOW        = 200;   // latencies the percentile is taken over
+    private static final int    MIN_SAMPLES   = 20;    // no hedging before the tail is known
+    private static final double MAX_CREDIT    = 3;     // hedges that may be saved up in quiet periods
+
+    private final RateLimitedProvider delegate;
+    private final double percentile;
+    private final double maxExtraRatio;
+
+    // guarded by this
+    private final long[] latencies = new long[WINDOW];
+    private int samples;
+    private double hedgeCredit;
+
+    HedgedProvider(RateLimitedProvider delegate, int percentile, int maxExtraPercent) {
+        this.delegate = delegate;
+        this.percentile = Math.min(99, Math.max(50, percentile)) / 100.0;
+        this.maxExtraRatio = Math.min(100, Math.max(1, maxExtraPercent)) / 100.0;
+    }
+
+    @Override
+    public @NotNull String modelId() {
+        return delegate.modelId();
+    }
+
+    @Override
+    public @NotNull ModelProfile profile() {
+        return delegate.profile();
+    }
+
+    @Override
+    public @NotNull String generateTestClass(@NotNull String prompt) throws Exception {
+        return generateTestClass(prompt, StreamListener.NONE);
+    }
+
+    @Override
+    public @NotNull String generateTestClass(@NotNull String prompt, @NotNull StreamListener listener) throws Exception {
+        return hedged((l, onAdmitted) -> delegate.generateTestClass(prompt, l, onAdmitted), listener);
+    }
+
+    @Override
+    public @NotNull String streamTestClass(@NotNull String prompt, @NotNull StreamListener listener) throws Exception {
+        return hedged((l, onAdmitted) -> delegate.streamTestClass(prompt, l, onAdmitted), listener);
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        String send(StreamListener listener, Runnable onAdmitted) throws Exception;
+    }
+
+    private String hedged(Request request, StreamListener listener) throws Exception {
+        long hedgeAfter = earnCreditAndGetThreshold();
+        Race race = new Race(request, listener);
+        Attempt primary = race.start(true);
+        try {
+            if (hedgeAfter >= 0) {
+                CompletableFuture.anyOf(primary.admitted, race.winner).get();
+                try {
+                    return race.winner.get(Math.max(0, hedgeAfter - primary.elapsedMillis()), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException slow) {
+                    if (!race.winner.isDone() && !delegate.isBackingOff() && spendCredit()) {
+                        LOG.info("LLM request still running " + hedgeAfter + " ms after admission, sending a hedge");
+                        race.start(false);
+                    }
+                }
+            }
+            return race.winner.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw (Error) e.getCause();
+        } finally {
+            race.cancelLosers();
+        }
+    }
+
+    /** One primary request and at most one hedge, racing for {@link #winner}. */
+    private final class Race {
+        final CompletableFuture<String> winner = new CompletableFuture<>();
+        private final Request request;
+        private final StreamListener listener;
+        private final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicReference<Attempt> speaker = new AtomicReference<>();
+        private final AtomicReference<Exception> primaryFailure = new AtomicReference<>();
+
+        Race(Request request, StreamListener listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+
+        Attempt start(boolean primary) {
+            Attempt attempt = new Attempt(primary);
+            attempts.add(attempt);
+            running.incrementAndGet();
+            // only the first attempt to report progress drives the UI, so the preview does not flicker
+            StreamListener forward = new StreamListener() {
+                @Override
+                public void onProgress(int chars, @NotNull Supplier<String> partial) {
+                    if (attempt.cancelled.get()) throw new CancellationException("Hedged request lost the race");
+                    if (speaker.compareAndSet(null, attempt) || speaker.get() == attempt) listener.onProgress(chars, partial);
+                }
+
+                @Override
+                public void onRetry(@NotNull String reason) {
+                    listener.onRetry(reason);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return attempt.cancelled.get() || listener.isCancelled();
+                }
+            };
+            attempt.future = AppExecutorUtil.getAppExecutorService().submit(() -> {
+                try {
+                    String reply = request.send(forward, attempt::admit);
+                    record(attempt.elapsedMillis());
+                    winner.complete(reply);
+                } catch (Exception e) {
+                    if (primary) primaryFailure.set(e);
+                    if (running.decrementAndGet() == 0) {
+                        Exception failure = primaryFailure.get();
+                        winner.completeExceptionally(failure != null ? failure : e);
+                    }
+                }
+            });
+            return attempt;
+        }
+
+        void cancelLosers() {
+            for (Attempt attempt : attempts) {
+                if (attempt.future.isDone()) continue;
+                // a cancelled primary still tells us how slow the tail is – at least this slow
+                if (attempt.primary && attempt.admitted.isDone()) record(attempt.elapsedMillis());
+                attempt.cancelled.set(true);
+                attempt.future.cancel(true);
+            }
+        }
+    }
+
+    private static final class Attempt {
+        final boolean primary;
+        final CompletableFuture<Void> admitted = new CompletableFuture<>();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        volatile long admittedAt;
+        volatile Future<?> future;
+
+        Attempt(boolean primary) {
+            this.primary = primary;
+        }
+
+        /** Called each time the rate limiter lets this attempt (or a retry of it) through. */
+        void admit() {
+            admittedAt = System.nanoTime();
+            admitted.complete(null);
+        }
+
+        /** Time since the latest admission; {@code 0} before the first one. */
+        long elapsedMillis() {
+            return admitted.isDone() ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - admittedAt) : 0;
+        }
+    }
+
+    // ── latency window and hedge budget ────────────────────────────────────────
+
+    /** @return the hedge threshold in ms, or {@code -1} while too few latencies are known */
+    private synchronized long earnCreditAndGetThreshold() {
+        hedgeCredit = Math.min(MAX_CREDIT, hedgeCredit + maxExtraRatio);
+        int n = Math.min(samples, WINDOW);
+        if (n < MIN_SAMPLES) return -1;
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        return sorted[Math.min(n - 1, (int) Math.ceil(percentile * n) - 1)];
+    }
+
+    private synchronized boolean spendCredit() {
+        if (hedgeCredit < 1) return false;
+        hedgeCredit--;
+        return true;
+    }
+
+    private synchronized void record(long millis) {
+        latencies[samples++ % WINDOW] = millis;
+        if (samples == 2 * WINDOW) samples = WINDOW;          // keep the index bounded, the ring stays full
+    }
+}
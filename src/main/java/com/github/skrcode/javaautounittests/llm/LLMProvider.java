@@ -0,0 +1,36 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * One long-lived connection to an LLM backend. Implementations hold their SDK client (and its
+ * connection pool) for as long as the API key / model stay the same – see {@link LLMProviders}.
+ */
+public interface LLMProvider {
+
+    /** Model identifier the replies come from; part of the response-cache key. */
+    @NotNull String modelId();
+
+    /** Limits, prices and speed of {@link #modelId()}, for planning and prompt sizing. */
+    default @NotNull ModelProfile profile() {
+        return ModelProfile.UNKNOWN;
+    }
+
+    /** Sends the prompt and returns the {@code outputTestClass} of the structured reply. */
+    @NotNull String generateTestClass(@NotNull String prompt) throws Exception;
+
+    /** Like {@link #generateTestClass(String)}, but tells {@code listener} about retries; there is no progress. */
+    default @NotNull String generateTestClass(@NotNull String prompt, @NotNull StreamListener listener) throws Exception {
+        return generateTestClass(prompt);
+    }
+
+    /**
+     * Streaming variant: reports progress as tokens arrive and may cancel the request early when the
+     * reply is clearly unusable. Providers without streaming support fall back to a single call.
+     */
+    default @NotNull String streamTestClass(@NotNull String prompt, @NotNull StreamListener listener) throws Exception {
+        String full = generateTestClass(prompt);
+        listener.onProgress(full.length(), () -> full);
+        return full;
+    }
+}
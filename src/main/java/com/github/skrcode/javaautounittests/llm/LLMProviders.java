@@ -0,0 +1,58 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Process-wide holder of the provider clients. A client is created on first use and reused by every
+ * iteration of every class; it is replaced only when the relevant {@link AISettings} values change.
+ * A replaced client is not closed – another class may still be mid-request on it – its idle
+ * connections simply age out of the pool.
+ * <p>
+ * Each client is wrapped in a {@link RateLimiter} sized from the settings, so all traffic to one
+ * account – across classes and bulk runs – shares one set of limits, and optionally in a
+ * {@link HedgedProvider} on top.
+ */
+public final class LLMProviders {
+
+    private static Cached openAI;
+    private static Cached gemini;
+
+    public static synchronized @NotNull LLMProvider openAI() {
+        AISettings settings = AISettings.getInstance();
+        String key = settings.getOpenAiKey() + '\u0000' + settings.getModel() + '\u0000' + wrappersKey(settings);
+        if (openAI == null || !openAI.settingsKey.equals(key)) {
+            openAI = new Cached(key, wrap(new OpenAIProvider(settings.getOpenAiKey(), settings.getModel()), settings));
+        }
+        return openAI.provider;
+    }
+
+    public static synchronized @NotNull LLMProvider gemini() {
+        AISettings settings = AISettings.getInstance();
+        String apiKey = Objects.toString(settings.getOpenAiKey(), "");
+        String key = apiKey + '\u0000' + wrappersKey(settings);
+        if (gemini == null || !gemini.settingsKey.equals(key)) {
+            gemini = new Cached(key, wrap(new GeminiProvider(apiKey), settings));
+        }
+        return gemini.provider;
+    }
+
+    private static LLMProvider wrap(LLMProvider provider, AISettings settings) {
+        RateLimitedProvider limited = new RateLimitedProvider(provider, new RateLimiter(
+                settings.getRequestsPerMinute(), settings.getTokensPerMinute(), settings.getMaxParallelClasses()));
+        return settings.isHedgeRequests()
+                ? new HedgedProvider(limited, settings.getHedgePercentile(), settings.getHedgeMaxExtraPercent())
+                : limited;
+    }
+
+    private static String wrappersKey(AISettings settings) {
+        return settings.getRequestsPerMinute() + "/" + settings.getTokensPerMinute() + "/" + settings.getMaxParallelClasses()
+                + (settings.isHedgeRequests() ? "/hedge@" + settings.getHedgePercentile() + "+" + settings.getHedgeMaxExtraPercent() : "");
+    }
+
+    private record Cached(String settingsKey, LLMProvider provider) {}
+
+    private LLMProviders() {}
+}
@@ -0,0 +1,55 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Limits, list prices and typical speed of a model, for planning and for keeping prompts inside the
+ * input window. Prices and speeds are published list figures / typical observations and only feed
+ * estimates – the provider's bill is authoritative.
+ *
+ * @param contextWindowTokens   input + output tokens the model accepts per request
+ * @param maxOutputTokens       longest reply the model produces
+ * @param inputUsdPerMillion    price per million prompt tokens
+ * @param outputUsdPerMillion   price per million reply tokens
+ * @param outputTokensPerSecond typical generation speed
+ * @param firstTokenMillis      typical latency before the reply starts
+ */
+public record ModelProfile(int contextWindowTokens, int maxOutputTokens,
+                           double inputUsdPerMillion, double outputUsdPerMillion,
+                           int outputTokensPerSecond, int firstTokenMillis) {
+
+    /** Conservative figures for models not listed below. */
+    public static final ModelProfile UNKNOWN = new ModelProfile(128_000, 16_384, 2.50, 10.00, 60, 1_500);
+
+    private static final Map<String, ModelProfile> OPENAI = Map.of(
+            "gpt-4.1-nano", new ModelProfile(1_047_576, 32_768, 0.10, 0.40, 150,   500),
+            "gpt-4.1-mini", new ModelProfile(1_047_576, 32_768, 0.40, 1.60, 100,   600),
+            "gpt-4.1",      new ModelProfile(1_047_576, 32_768, 2.00, 8.00,  80,   800),
+            "gpt-4o-mini",  new ModelProfile(  128_000, 16_384, 0.15, 0.60, 100,   600),
+            "gpt-4o",       new ModelProfile(  128_000, 16_384, 2.50, 10.00, 80,   800),
+            "o4-mini",      new ModelProfile(  200_000, 100_000, 1.10, 4.40, 100, 5_000),
+            "o3-mini",      new ModelProfile(  200_000, 100_000, 1.10, 4.40, 100, 5_000),
+            "o1-mini",      new ModelProfile(  128_000, 65_536, 1.10, 4.40, 100, 5_000),
+            "o3",           new ModelProfile(  200_000, 100_000, 2.00, 8.00,  60, 10_000),
+            "o1",           new ModelProfile(  200_000, 100_000, 15.00, 60.00, 60, 10_000));
+
+    static @NotNull ModelProfile openAI(@NotNull String model) {
+        return OPENAI.getOrDefault(model, UNKNOWN);
+    }
+
+    /** Largest prompt that still leaves room for a full-length reply. */
+    public int maxPromptTokens() {
+        return contextWindowTokens - maxOutputTokens;
+    }
+
+    public double costUsd(long inputTokens, long outputTokens) {
+        return (inputTokens * inputUsdPerMillion + outputTokens * outputUsdPerMillion) / 1_000_000;
+    }
+
+    /** Typical wall-clock time of one request producing {@code outputTokens}. */
+    public long requestMillis(long outputTokens) {
+        return firstTokenMillis + outputTokens * 1000 / Math.max(1, outputTokensPerSecond);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import com.github.skrcode.javaautounittests.ResponseOutput;
+import com.openai.client.OpenAIClient;
+import com.openai.client.okhttp.OpenAIOkHttpClient;
+import com.openai.models.responses.ResponseCreateParams;
+import com.openai.models.responses.StructuredResponseCreateParams;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.stream.Collectors;
+
+/** OpenAI Responses API with structured {@link ResponseOutput}; one OkHttp pool per key. */
+final class OpenAIProvider implements LLMProvider {
+
+    private final OpenAIClient client;
+    private final String model;
+
+    OpenAIProvider(String apiKey, String model) {
+        // retries are left to the RateLimiter, which also knows about the other in-flight requests
+        this.client = OpenAIOkHttpClient.builder().apiKey(apiKey).maxRetries(0).build();
+        this.model = model;
+    }
+
+    @Override
+    public @NotNull String modelId() {
+        return model;
+    }
+
+    @Override
+    public @NotNull ModelProfile profile() {
+        return ModelProfile.openAI(model);
+    }
+
+    @Override
+    public @NotNull String generateTestClass(@NotNull String prompt) {
+        StructuredResponseCreateParams<ResponseOutput> params = ResponseCreateParams.builder()
+                .input(prompt)
+                .text(ResponseOutput.class)
+                .model(model)
+                .build();
+
+        return client.responses().create(params).output().stream()
+                .flatMap(item -> item.message().stream())
+                .flatMap(message -> message.content().stream())
+                .flatMap(content -> content.outputText().stream())
+                .map(responseTestClass -> responseTestClass.outputTestClass).collect(Collectors.joining());
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sends every request of a provider through its account's {@link RateLimiter}. The overloads taking
+ * {@code onAdmitted} report each time the limiter lets an attempt through, so {@link HedgedProvider}
+ * can time the provider without the time spent queueing.
+ */
+final class RateLimitedProvider implements LLMProvider {
+
+    private final LLMProvider delegate;
+    private final RateLimiter limiter;
+
+    RateLimitedProvider(LLMProvider delegate, RateLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public @NotNull String modelId() {
+        return delegate.modelId();
+    }
+
+    @Override
+    public @NotNull ModelProfile profile() {
+        return delegate.profile();
+    }
+
+    @Override
+    public @NotNull String generateTestClass(@NotNull String prompt) throws Exception {
+        return generateTestClass(prompt, StreamListener.NONE);
+    }
+
+    @Override
+    public @NotNull String generateTestClass(@NotNull String prompt, @NotNull StreamListener listener) throws Exception {
+        return generateTestClass(prompt, listener, () -> {});
+    }
+
+    @Override
+    public @NotNull String streamTestClass(@NotNull String prompt, @NotNull StreamListener listener) throws Exception {
+        return streamTestClass(prompt, listener, () -> {});
+    }
+
+    /** @param listener only told about retries and asked about cancellation */
+    @NotNull String generateTestClass(@NotNull String prompt, @NotNull StreamListener listener, @NotNull Runnable onAdmitted) throws Exception {
+        return limiter.call(Tokens.estimate(prompt), () -> {
+            onAdmitted.run();
+            return delegate.generateTestClass(prompt);
+        }, listener::onRetry, listener::isCancelled);
+    }
+
+    @NotNull String streamTestClass(@NotNull String prompt, @NotNull StreamListener listener, @NotNull Runnable onAdmitted) throws Exception {
+        return limiter.call(Tokens.estimate(prompt), () -> {
+            onAdmitted.run();
+            return delegate.streamTestClass(prompt, listener);
+        }, listener::onRetry, listener::isCancelled);
+    }
+
+    /** True while the account is throttled: paused by a Retry-After or running below its concurrency limit. */
+    boolean isBackingOff() {
+        return limiter.isBackingOff();
+    }
+}
@@ -0,0 +1,234 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Admission control for every request to one provider account. A request starts only when
+ * <ul>
+ *   <li>the requests-per-minute and tokens-per-minute buckets hold enough credit,</li>
+ *   <li>fewer than the adaptive concurrency limit are in flight – the limit grows by one per window of
+ *       successful requests and halves whenever the provider throttles (AIMD), and</li>
+ *   <li>no Retry-After pause imposed by an earlier 429 is still running.</li>
+ * </ul>
+ * Throttled (429/503) and transient (5xx, network) failures are retried with full-jitter exponential
+ * backoff, or exactly after the server's Retry-After when it sends one. Waiting threads wake every
+ * {@value #WAIT_SLICE_MS} ms to check the caller's cancellation, and stay interruptible, so cancelling
+ * a bulk run releases them promptly.
+ */
+final class RateLimiter {
+
+    private static final Logger LOG = Logger.getInstance(RateLimiter.class);
+
+    private static final int  MAX_ATTEMPTS   = 6;
+    private static final long BASE_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS  = 60_000;
+    private static final long MINUTE_NANOS    = TimeUnit.MINUTES.toNanos(1);
+    private static final long WAIT_SLICE_MS   = 200;
+
+    /** Gemini puts the retry hint into the error body: {@code "retryDelay": "23s"}. */
+    private static final Pattern RETRY_DELAY = Pattern.compile("retryDelay\"?\\s*[:=]\\s*\"?(\\d+(?:\\.\\d+)?)s");
+
+    private final Bucket requests;
+    private final Bucket tokens;
+    private final int maxConcurrency;
+
+    // guarded by this
+    private double concurrencyLimit;
+    private int inFlight;
+    private long pausedUntil;                         // System.nanoTime(); 0 = not paused
+
+    RateLimiter(int requestsPerMinute, int tokensPerMinute, int maxConcurrency) {
+        this.requests = new Bucket(Math.max(1, requestsPerMinute));
+        this.tokens = new Bucket(Math.max(1, tokensPerMinute));
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.concurrencyLimit = this.maxConcurrency;
+    }
+
+    /**
+     * Runs {@code request} once admitted, retrying throttled and transient failures.
+     *
+     * @param onRetry   told the reason before each retry
+     * @param cancelled polled while waiting; once true the wait ends with a {@link ProcessCanceledException}
+     */
+    <T> T call(int estimatedTokens, @NotNull Callable<T> request, @NotNull Consumer<String> onRetry,
+               @NotNull BooleanSupplier cancelled) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            acquire(estimatedTokens, cancelled);
+            Failure failure = null;
+            boolean succeeded = false;
+            try {
+                T result = request.call();
+                succeeded = true;
+                return result;
+            } catch (Exception e) {
+                failure = Failure.classify(e);
+                if (failure == null || attempt >= MAX_ATTEMPTS) throw e;
+            } finally {
+                release(succeeded, failure);         // also on errors and cancellation, which say nothing about load
+            }
+
+            long waitMillis = failure.retryAfterMillis() >= 0 ? failure.retryAfterMillis() : backoffMillis(attempt);
+            LOG.info("LLM request " + (failure.throttled() ? "throttled" : "failed") + " (" + failure.reason()
+                    + "), retry " + attempt + " in " + waitMillis + " ms, concurrency limit " + currentLimit());
+            onRetry.accept(failure.reason());
+            if (failure.throttled()) pause(waitMillis);
+            sleep(waitMillis, cancelled);
+        }
+    }
+
+    synchronized int currentLimit() {
+        return (int) concurrencyLimit;
+    }
+
+    /** True while a Retry-After pause runs or the concurrency limit has not recovered from a throttle. */
+    synchronized boolean isBackingOff() {
+        return pausedUntil - System.nanoTime() > 0 || concurrencyLimit < maxConcurrency;
+    }
+
+    // ── admission ──────────────────────────────────────────────────────────────
+
+    private synchronized void acquire(int estimatedTokens, BooleanSupplier cancelled) throws InterruptedException {
+        int cost = Math.min(estimatedTokens, tokens.capacity);     // an oversized prompt still gets through, alone
+        while (true) {
+            if (cancelled.getAsBoolean()) throw new ProcessCanceledException();
+            long now = System.nanoTime();
+            long waitNanos = Math.max(0, pausedUntil - now);
+            if (waitNanos == 0) {
+                if (inFlight >= (int) concurrencyLimit) {
+                    wait(WAIT_SLICE_MS);                           // woken by release()
+                    continue;
+                }
+                waitNanos = Math.max(requests.delayNanos(1, now), tokens.delayNanos(cost, now));
+                if (waitNanos == 0) {
+                    requests.take(1, now);
+                    tokens.take(cost, now);
+                    inFlight++;
+                    return;
+                }
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(WAIT_SLICE_MS)));
+        }
+    }
+
+    /**
+     * Only a success grows the concurrency limit and only a throttle shrinks it; a request that ended
+     * any other way (4xx, transient error, cancellation) just gives its slot back.
+     */
+    private synchronized void release(boolean succeeded, @Nullable Failure failure) {
+        inFlight--;
+        if (succeeded) {
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+        } else if (failure != null && failure.throttled()) {
+            concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+        }
+        notifyAll();
+    }
+
+    /** Holds back every request – not just the throttled one – until the provider's window reopens. */
+    private synchronized void pause(long millis) {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void sleep(long millis, BooleanSupplier cancelled) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (long left = millis; left > 0; left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) {
+            if (cancelled.getAsBoolean()) throw new ProcessCanceledException();
+            Thread.sleep(Math.min(left, WAIT_SLICE_MS));
+        }
+    }
+
+    private static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    /** Continuously refilling per-minute allowance; callers synchronize on the limiter. */
+    private static final class Bucket {
+        final int capacity;
+        private double credit;
+        private long refilledAt = System.nanoTime();
+
+        Bucket(int perMinute) {
+            this.capacity = perMinute;
+            this.credit = perMinute;
+        }
+
+        long delayNanos(int amount, long now) {
+            refill(now);
+            return credit >= amount ? 0 : (long) Math.ceil((amount - credit) * MINUTE_NANOS / capacity);
+        }
+
+        void take(int amount, long now) {
+            refill(now);
+            credit -= amount;
+        }
+
+        private void refill(long now) {
+            credit = Math.min(capacity, credit + (now - refilledAt) * (double) capacity / MINUTE_NANOS);
+            refilledAt = now;
+        }
+    }
+
+    // ── failure classification ─────────────────────────────────────────────────
+
+    /**
+     * A retryable failure. {@code throttled} failures (429, 503) shrink the concurrency limit; the
+     * others (500, 502, 504, network errors) are merely retried.
+     */
+    private record Failure(boolean throttled, long retryAfterMillis, String reason) {
+
+        static @Nullable Failure classify(Throwable error) {
+            for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+                if (t instanceof com.openai.errors.OpenAIServiceException e) {
+                    return ofStatus(e.statusCode(), retryAfter(e.headers().values("retry-after-ms"),
+                            e.headers().values("retry-after")));
+                }
+                if (t instanceof com.google.genai.errors.ApiException e) {
+                    return ofStatus(e.code(), retryDelay(e.getMessage()));
+                }
+                if (t instanceof com.openai.errors.OpenAIIoException || t instanceof SocketTimeoutException || t instanceof SocketException) {
+                    return new Failure(false, -1, t.getClass().getSimpleName() + ": " + t.getMessage());
+                }
+            }
+            return null;
+        }
+
+        private static @Nullable Failure ofStatus(int status, long retryAfterMillis) {
+            return switch (status) {
+                case 429, 503 -> new Failure(true, retryAfterMillis, "HTTP " + status);
+                case 500, 502, 504 -> new Failure(false, retryAfterMillis, "HTTP " + status);
+                default -> null;                                   // 4xx: the request itself is wrong
+            };
+        }
+
+        private static long retryAfter(List<String> millis, List<String> seconds) {
+            try {
+                if (!millis.isEmpty()) return Math.min(MAX_BACKOFF_MS, (long) Double.parseDouble(millis.get(0).trim()));
+                if (!seconds.isEmpty()) return Math.min(MAX_BACKOFF_MS, (long) (Double.parseDouble(seconds.get(0).trim()) * 1000));
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form: fall back to backoff
+            }
+            return -1;
+        }
+
+        private static long retryDelay(@Nullable String message) {
+            if (message == null) return -1;
+            Matcher m = RETRY_DELAY.matcher(message);
+            return m.find() ? Math.min(MAX_BACKOFF_MS, (long) (Double.parseDouble(m.group(1)) * 1000)) : -1;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import com.github.skrcode.javaautounittests.JAIPilotPaths;
+import com.github.skrcode.javaautounittests.settings.AISettings;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed, size-bounded cache of LLM replies under {@code <ide-system>/jaipilot/llm-cache}.
+ * Entries are keyed by SHA-256 of model + prompt-template version + prompt, one file per reply.
+ * The LRU order lives in {@code index.txt} so it survives IDE restarts; it is rewritten a few seconds
+ * after a change, and replies a crash kept out of it are picked up again by age on the next start.
+ * Least recently used replies are evicted once the total exceeds {@code responseCacheMaxMb}.
+ */
+public final class ResponseCache implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(ResponseCache.class);
+    private static final String INDEX = "index.txt";
+    private static final String ENTRY_SUFFIX = ".txt";
+    private static final long FLUSH_DELAY_S = 5;
+
+    private final Path dir;
+    /** key → reply size in bytes, in access order (eldest first). Guarded by {@code this}. */
+    private final LinkedHashMap<String, Long> lru = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private boolean indexDirty;
+    private @Nullable ScheduledFuture<?> pendingFlush;
+
+    public ResponseCache() {
+        this.dir = JAIPilotPaths.systemDir("llm-cache");
+        loadIndex();
+    }
+
+    public static ResponseCache getInstance() {
+        return ApplicationManager.getApplication().getService(ResponseCache.class);
+    }
+
+    public static @NotNull String key(@NotNull String model, @NotNull String templateVersion, @NotNull String prompt) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(model.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update(templateVersion.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized @Nullable String get(@NotNull String key) {
+        if (lru.get(key) == null) return null;      // get() also refreshes the LRU position
+        try {
+            String reply = Files.readString(entry(key));
+            indexDirty = true;
+            return reply;
+        } catch (IOException e) {
+            forget(key);
+            return null;
+        }
+    }
+
+    public synchronized void put(@NotNull String key, @NotNull String reply) {
+        byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+        try {
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, entry(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("JAIPilot: could not cache LLM reply", e);
+            return;
+        }
+        Long previous = lru.put(key, (long) bytes.length);
+        totalBytes += bytes.length - (previous == null ? 0 : previous);
+        evict();
+        indexDirty = true;
+        scheduleFlush();
+    }
+
+    /** Persists the LRU order if puts or hits changed it; also called at the end of each bulk run and on shutdown. */
+    public synchronized void flush() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        if (!indexDirty) return;
+        try {
+            Path tmp = Files.createTempFile(dir, INDEX, ".tmp");
+            try (BufferedWriter w = Files.newBufferedWriter(tmp)) {
+                for (Map.Entry<String, Long> e : lru.entrySet()) {
+                    w.write(e.getKey() + ' ' + e.getValue());
+                    w.newLine();
+                }
+            }
+            Files.move(tmp, dir.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexDirty = false;
+        } catch (IOException e) {
+            LOG.warn("JAIPilot: could not write LLM cache index", e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        flush();
+    }
+
+    /** Writes the index shortly after the first unsaved put, so a crash loses at most a few seconds of it. */
+    private void scheduleFlush() {
+        if (pendingFlush != null) return;
+        pendingFlush = AppExecutorUtil.getAppScheduledExecutorService().schedule(this::flush, FLUSH_DELAY_S, TimeUnit.SECONDS);
+    }
+
+    private void evict() {
+        long maxBytes = AISettings.getInstance().getResponseCacheMaxMb() * 1024L * 1024L;
+        Iterator<Map.Entry<String, Long>> it = lru.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(entry(eldest.getKey()));
+            } catch (IOException e) {
+                LOG.debug("JAIPilot: could not delete cached reply " + eldest.getKey(), e);
+            }
+        }
+    }
+
+    private void forget(String key) {
+        Long size = lru.remove(key);
+        if (size != null) totalBytes -= size;
+        indexDirty = true;
+    }
+
+    private void loadIndex() {
+        Path index = dir.resolve(INDEX);
+        if (Files.exists(index)) {
+            try {
+                List<String> lines = Files.readAllLines(index);
+                for (String line : lines) {
+                    int sp = line.indexOf(' ');
+                    if (sp <= 0) continue;
+                    String key = line.substring(0, sp);
+                    if (!Files.exists(entry(key))) continue;       // removed behind our back
+                    long size = Long.parseLong(line.substring(sp + 1).trim());
+                    lru.put(key, size);
+                    totalBytes += size;
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOG.warn("JAIPilot: LLM cache index unreadable, rebuilding it from the cached replies", e);
+                lru.clear();
+                totalBytes = 0;
+            }
+        }
+        recoverUnindexed();
+    }
+
+    /**
+     * Deletes temp files left by an interrupted write and adds replies missing from the index – those
+     * stored after its last flush before a crash – oldest first, so they are evicted in age order.
+     */
+    private void recoverUnindexed() {
+        record Unindexed(String key, long size, FileTime modified) {}
+        List<Unindexed> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(ENTRY_SUFFIX) && !name.equals(INDEX)) {
+                    String key = name.substring(0, name.length() - ENTRY_SUFFIX.length());
+                    if (!lru.containsKey(key)) found.add(new Unindexed(key, Files.size(file), Files.getLastModifiedTime(file)));
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("JAIPilot: could not scan the LLM cache directory", e);
+            return;
+        }
+        if (found.isEmpty()) return;
+        found.sort(Comparator.comparing(Unindexed::modified));
+        for (Unindexed u : found) {
+            lru.put(u.key(), u.size());
+            totalBytes += u.size();
+        }
+        indexDirty = true;
+        evict();
+    }
+
+    private Path entry(String key) {
+        return dir.resolve(key + ENTRY_SUFFIX);
+    }
+}
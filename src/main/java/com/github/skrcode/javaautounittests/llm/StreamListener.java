@@ -0,0 +1,22 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Supplier;
+
+/** Progress callback while a reply streams in; the partial text is only built when asked for. */
+@FunctionalInterface
+public interface StreamListener {
+
+    StreamListener NONE = (receivedChars, partial) -> {};
+
+    void onProgress(int receivedChars, @NotNull Supplier<String> partial);
+
+    /** The request failed with a retryable error and is about to be sent again. */
+    default void onRetry(@NotNull String reason) {}
+
+    /** Polled while the request waits for admission or a retry; {@code true} gives the request up. */
+    default boolean isCancelled() {
+        return false;
+    }
+}
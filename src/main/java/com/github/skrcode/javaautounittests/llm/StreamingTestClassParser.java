@@ -0,0 +1,150 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental reader for the {@code {"outputTestClass": "..."}} reply, fed chunk by chunk as the
+ * tokens arrive. It decodes the string value on the fly (escapes may straddle chunk boundaries) and
+ * rejects replies that are already known to be useless:
+ * <ul>
+ *   <li>no {@code outputTestClass} field at the start of the object,</li>
+ *   <li>no {@code class} declaration within the first {@code declarationWindow} characters,</li>
+ *   <li>more than {@code maxChars} characters of test source,</li>
+ *   <li>a stream that ends before the object is closed (see {@link #finish()}).</li>
+ * </ul>
+ */
+public final class StreamingTestClassParser {
+
+    private static final Pattern FIELD_START = Pattern.compile("\\{\\s*\"outputTestClass\"\\s*:\\s*\"");
+    private static final Pattern CLASS_DECL  = Pattern.compile("\\bclass\\s+\\w+");
+    private static final int     MAX_HEADER  = 256;
+
+    private enum State { HEADER, VALUE, TRAILER, DONE }
+
+    private final int maxChars;
+    private final int declarationWindow;
+
+    private final StringBuilder header = new StringBuilder();
+    private final StringBuilder value  = new StringBuilder();
+    private final StringBuilder escape = new StringBuilder();   // pending "\..." sequence
+    private State   state = State.HEADER;
+    private boolean sawClassDeclaration;
+    private int     scannedForDeclaration;
+
+    public StreamingTestClassParser(int maxChars, int declarationWindow) {
+        this.maxChars = maxChars;
+        this.declarationWindow = declarationWindow;
+    }
+
+    /** Consumes the next raw chunk of the JSON reply. */
+    public void feed(@NotNull CharSequence chunk) throws EarlyAbortException {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            switch (state) {
+                case HEADER  -> header(c);
+                case VALUE   -> value(c);
+                case TRAILER -> trailer(c);
+                case DONE    -> {
+                    if (!Character.isWhitespace(c)) throw new EarlyAbortException("Unexpected data after the reply object");
+                }
+            }
+        }
+        checkDeclaration();
+    }
+
+    /** Called once the stream ended; returns the complete test source. */
+    public @NotNull String finish() throws EarlyAbortException {
+        if (state != State.DONE) throw new EarlyAbortException("Reply was truncated (" + value.length() + " chars received)");
+        if (!sawClassDeclaration) throw new EarlyAbortException("Reply contains no class declaration");
+        return value.toString();
+    }
+
+    /** Test source decoded so far – suitable for a live preview. */
+    public @NotNull String partial() {
+        return value.toString();
+    }
+
+    public int decodedLength() {
+        return value.length();
+    }
+
+    private void header(char c) throws EarlyAbortException {
+        header.append(c);
+        Matcher m = FIELD_START.matcher(header);
+        if (m.find()) {
+            if (m.start() != 0 && !header.substring(0, m.start()).isBlank())
+                throw new EarlyAbortException("Unexpected data before outputTestClass");
+            state = State.VALUE;
+        } else if (header.length() > MAX_HEADER) {
+            throw new EarlyAbortException("Reply does not start with an outputTestClass field");
+        }
+    }
+
+    private void value(char c) throws EarlyAbortException {
+        if (escape.length() > 0) {
+            escape.append(c);
+            decodeEscape();
+            return;
+        }
+        if (c == '\\') {
+            escape.append(c);
+        } else if (c == '"') {
+            state = State.TRAILER;
+        } else {
+            append(c);
+        }
+    }
+
+    private void decodeEscape() throws EarlyAbortException {
+        char kind = escape.charAt(1);
+        if (kind == 'u') {
+            if (escape.length() < 6) return;            // wait for all four hex digits
+            try {
+                append((char) Integer.parseInt(escape.substring(2, 6), 16));
+            } catch (NumberFormatException e) {
+                throw new EarlyAbortException("Malformed unicode escape " + escape);
+            }
+        } else {
+            append(switch (kind) {
+                case '"', '\\', '/' -> kind;
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 't' -> '\t';
+                default -> throw new EarlyAbortException("Malformed escape " + escape);
+            });
+        }
+        escape.setLength(0);
+    }
+
+    private void trailer(char c) throws EarlyAbortException {
+        if (c == '}') state = State.DONE;
+        else if (!Character.isWhitespace(c)) throw new EarlyAbortException("Unexpected data after outputTestClass");
+    }
+
+    private void append(char c) throws EarlyAbortException {
+        value.append(c);
+        if (value.length() > maxChars) throw new EarlyAbortException("Reply exceeds " + maxChars + " characters");
+    }
+
+    private void checkDeclaration() throws EarlyAbortException {
+        if (sawClassDeclaration || value.length() == scannedForDeclaration) return;
+        // re-scan a little overlap so a declaration split across chunks is still found
+        int from = Math.max(0, scannedForDeclaration - 64);
+        sawClassDeclaration = CLASS_DECL.matcher(value).region(from, value.length()).find();
+        scannedForDeclaration = value.length();
+        if (!sawClassDeclaration && value.length() > declarationWindow)
+            throw new EarlyAbortException("No class declaration in the first " + declarationWindow + " characters");
+    }
+
+    /** Thrown as soon as the reply is known to be unusable; the caller cancels the request. */
+    public static final class EarlyAbortException extends Exception {
+        public EarlyAbortException(String message) {
+            super(message);
+        }
+    }
+}
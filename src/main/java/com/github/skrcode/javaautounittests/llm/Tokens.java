@@ -0,0 +1,13 @@
+package com.github.skrcode.javaautounittests.llm;
+
+import org.jetbrains.annotations.NotNull;
+
+/** Prompt-size estimates, in model tokens, counted offline with {@link BpeTokenizer}. */
+public final class Tokens {
+
+    public static int estimate(@NotNull CharSequence text) {
+        return BpeTokenizer.JAVA.count(text);
+    }
+
+    private Tokens() {}
+}
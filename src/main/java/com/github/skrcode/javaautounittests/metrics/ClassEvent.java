@@ -0,0 +1,26 @@
+package com.github.skrcode.javaautounittests.metrics;
+
+import jdk.jfr.*;
+
+/** JFR event emitted when a class under test leaves the pipeline. */
+@Name("com.github.skrcode.jaipilot.Class")
+@Label("JAIPilot Class")
+@Category("JAIPilot")
+@StackTrace(false)
+final class ClassEvent extends Event {
+
+    @Label("Class Under Test")
+    String cut;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Compile Iterations")
+    int compileIterations;
+
+    @Label("Execute Iterations")
+    int executeIterations;
+
+    @Label("Coverage Iterations")
+    int coverageIterations;
+}
@@ -0,0 +1,73 @@
+package com.github.skrcode.javaautounittests.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative longs. Values below 16 get a bucket each; above that every
+ * power of two is split into 8 buckets, so a percentile is off by at most 12.5 %, whatever the range.
+ */
+final class Histogram {
+
+    private static final int LINEAR = 16;
+    private static final int SUB_BITS = 3;                       // 8 buckets per power of two
+    private static final int BUCKETS = LINEAR + (64 - 4) * (1 << SUB_BITS);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucket(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    long sum() {
+        return sum.get();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /** Upper bound of the bucket holding the {@code p}-quantile ({@code 0 < p <= 1}), capped at the maximum. */
+    long percentile(double p) {
+        long n = count.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    private static int bucket(long v) {
+        if (v < LINEAR) return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);        // >= 4
+        int sub = (int) (v >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return LINEAR + (exponent - 4) * (1 << SUB_BITS) + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int exponent = (bucket - LINEAR) / (1 << SUB_BITS) + 4;
+        int sub = (bucket - LINEAR) % (1 << SUB_BITS);
+        long width = 1L << (exponent - SUB_BITS);
+        return ((1L << SUB_BITS) + sub) * width + width - 1;
+    }
+}
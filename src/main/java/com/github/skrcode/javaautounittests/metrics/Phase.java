@@ -0,0 +1,25 @@
+package com.github.skrcode.javaautounittests.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/** The timed steps of a generation run, in pipeline order. */
+public enum Phase {
+    PROMPT_LOAD("prompt load"),
+    PROMPT_BUILD("prompt build"),
+    LLM_REQUEST("LLM request"),
+    LLM_CACHED("LLM cache hit"),
+    PRECOMPILE("in-memory compile"),
+    WRITE("write"),
+    COMPILE("compile"),
+    EXECUTE("execute");
+
+    private final String label;
+
+    Phase(String label) {
+        this.label = label;
+    }
+
+    public @NotNull String label() {
+        return label;
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.skrcode.javaautounittests.metrics;
+
+import jdk.jfr.*;
+
+/** JFR event for one {@link RunMetrics.Span}; its duration is the phase's wall-clock time. */
+@Name("com.github.skrcode.jaipilot.Phase")
+@Label("JAIPilot Phase")
+@Category("JAIPilot")
+@StackTrace(false)
+final class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Class Under Test")
+    String cut;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Input Tokens")
+    int inputTokens;
+
+    @Label("Output Tokens")
+    int outputTokens;
+
+    @Label("Retries")
+    int retries;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
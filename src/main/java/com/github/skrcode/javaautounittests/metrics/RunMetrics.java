@@ -0,0 +1,240 @@
+package com.github.skrcode.javaautounittests.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and sizes of one generation run. Each phase of each class is a {@link Span}: it becomes a
+ * JFR {@code com.github.skrcode.jaipilot.Phase} event and is added to the run's per-phase histogram.
+ * At the end of a run, {@link #export} writes the aggregates and one row per class as CSV and JSON.
+ * <p>
+ * Compile and execute spans run from submission to result, so they include the time a class waits
+ * for its batch: that is the time the class actually spends on the step.
+ */
+public final class RunMetrics {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+    private final Map<String, ClassStats> classes = new ConcurrentHashMap<>();
+    private final Histogram iterations = new Histogram();
+
+    public RunMetrics() {
+        for (Phase phase : PHASES) phases.put(phase, new PhaseStats());
+    }
+
+    /** Starts timing {@code phase} of class {@code cut} ("" for run-wide phases). */
+    public @NotNull Span start(@NotNull Phase phase, @NotNull String cut) {
+        return new Span(phase, cut);
+    }
+
+    /** Records how a class left the pipeline and how many iterations of each kind it took. */
+    public void classFinished(@NotNull String cut, @NotNull String outcome,
+                              int compileIterations, int executeIterations, int coverageIterations) {
+        ClassStats stats = classStats(cut);
+        stats.outcome = outcome;
+        stats.iterations = compileIterations + executeIterations + coverageIterations;
+        iterations.record(stats.iterations);
+
+        ClassEvent event = new ClassEvent();
+        if (event.shouldCommit()) {
+            event.cut = cut;
+            event.outcome = outcome;
+            event.compileIterations = compileIterations;
+            event.executeIterations = executeIterations;
+            event.coverageIterations = coverageIterations;
+            event.commit();
+        }
+    }
+
+    /** One timed phase; {@link #end()} or {@link #fail()} it exactly once, from any thread. */
+    public final class Span {
+        private final Phase phase;
+        private final String cut;
+        private final long startNanos = System.nanoTime();
+        private final PhaseEvent event = new PhaseEvent();
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private long bytes;
+        private int inputTokens, outputTokens, retries;
+
+        private Span(Phase phase, String cut) {
+            this.phase = phase;
+            this.cut = cut;
+            event.begin();
+        }
+
+        public @NotNull Span bytes(long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+
+        public @NotNull Span tokens(int input, int output) {
+            this.inputTokens = input;
+            this.outputTokens = output;
+            return this;
+        }
+
+        public @NotNull Span retries(int retries) {
+            this.retries = retries;
+            return this;
+        }
+
+        public void end() {
+            finish(true);
+        }
+
+        public void fail() {
+            finish(false);
+        }
+
+        private void finish(boolean succeeded) {
+            if (!ended.compareAndSet(false, true)) return;
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            phases.get(phase).add(millis, bytes, inputTokens, outputTokens, retries, succeeded);
+            if (!cut.isEmpty()) classStats(cut).millis.addAndGet(phase.ordinal(), millis);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.label();
+                event.cut = cut;
+                event.bytes = bytes;
+                event.inputTokens = inputTokens;
+                event.outputTokens = outputTokens;
+                event.retries = retries;
+                event.succeeded = succeeded;
+                event.commit();
+            }
+        }
+    }
+
+    // ── reporting ───────────────────────────────────────────────────────────────
+
+    /** One line per phase with its share of the time spent in all phases, for the log. */
+    public @NotNull String summary() {
+        long total = phases.values().stream().mapToLong(s -> s.millis.sum()).sum();
+        StringBuilder out = new StringBuilder("JAIPilot run of " + classes.size() + " class(es), "
+                + (System.currentTimeMillis() - startedAt) / 1000 + " s wall clock");
+        for (Phase phase : PHASES) {
+            PhaseStats s = phases.get(phase);
+            if (s.millis.count() == 0) continue;
+            out.append(String.format(Locale.ROOT, "%n  %-18s %5d x  %5.1f %% of phase time  p50 %d ms  p90 %d ms  max %d ms",
+                    phase.label(), s.millis.count(), total == 0 ? 0 : 100.0 * s.millis.sum() / total,
+                    s.millis.percentile(0.5), s.millis.percentile(0.9), s.millis.max()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes {@code <name>-phases.csv}, {@code <name>-classes.csv} and {@code <name>.json} into {@code dir}.
+     *
+     * @return the JSON file
+     */
+    public @NotNull Path export(@NotNull Path dir, @NotNull String name) throws IOException {
+        try (Writer csv = Files.newBufferedWriter(dir.resolve(name + "-phases.csv"), StandardCharsets.UTF_8)) {
+            csv.write("phase,count,failures,total_ms,mean_ms,p50_ms,p90_ms,p99_ms,max_ms,bytes,input_tokens,output_tokens,retries\n");
+            for (PhaseSummary p : phaseSummaries()) {
+                csv.write(String.join(",", p.phase(), Long.toString(p.count()), Long.toString(p.failures()),
+                        Long.toString(p.totalMs()), String.format(Locale.ROOT, "%.1f", p.meanMs()),
+                        Long.toString(p.p50Ms()), Long.toString(p.p90Ms()), Long.toString(p.p99Ms()), Long.toString(p.maxMs()),
+                        Long.toString(p.bytes()), Long.toString(p.inputTokens()), Long.toString(p.outputTokens()),
+                        Long.toString(p.retries())) + "\n");
+            }
+        }
+        try (Writer csv = Files.newBufferedWriter(dir.resolve(name + "-classes.csv"), StandardCharsets.UTF_8)) {
+            StringJoiner header = new StringJoiner(",", "", "\n").add("class").add("outcome").add("iterations");
+            for (Phase phase : PHASES) header.add(phase.name().toLowerCase(Locale.ROOT) + "_ms");
+            csv.write(header.toString());
+            for (ClassSummary c : classSummaries()) {
+                StringJoiner row = new StringJoiner(",", "", "\n").add(c.cut()).add(c.outcome()).add(Integer.toString(c.iterations()));
+                for (Phase phase : PHASES) row.add(Long.toString(c.millisByPhase().getOrDefault(phase.name(), 0L)));
+                csv.write(row.toString());
+            }
+        }
+        Path json = dir.resolve(name + ".json");
+        MAPPER.writeValue(json.toFile(), new Export(startedAt, System.currentTimeMillis(), phaseSummaries(),
+                new IterationSummary(iterations.count(), iterations.mean(), iterations.percentile(0.5),
+                        iterations.percentile(0.9), iterations.max()),
+                classSummaries()));
+        return json;
+    }
+
+    public record PhaseSummary(String phase, long count, long failures, long totalMs, double meanMs,
+                               long p50Ms, long p90Ms, long p99Ms, long maxMs,
+                               long bytes, long inputTokens, long outputTokens, long retries) {}
+
+    public record IterationSummary(long classes, double mean, long p50, long p90, long max) {}
+
+    public record ClassSummary(String cut, String outcome, int iterations, Map<String, Long> millisByPhase) {}
+
+    public record Export(long startedAt, long finishedAt, List<PhaseSummary> phases,
+                         IterationSummary iterationsPerClass, List<ClassSummary> classes) {}
+
+    private List<PhaseSummary> phaseSummaries() {
+        List<PhaseSummary> out = new ArrayList<>();
+        for (Phase phase : PHASES) {
+            PhaseStats s = phases.get(phase);
+            Histogram h = s.millis;
+            if (h.count() == 0) continue;
+            out.add(new PhaseSummary(phase.name(), h.count(), s.failures.sum(), h.sum(), h.mean(),
+                    h.percentile(0.5), h.percentile(0.9), h.percentile(0.99), h.max(),
+                    s.bytes.sum(), s.inputTokens.sum(), s.outputTokens.sum(), s.retries.sum()));
+        }
+        return out;
+    }
+
+    private List<ClassSummary> classSummaries() {
+        List<ClassSummary> out = new ArrayList<>();
+        new TreeMap<>(classes).forEach((cut, stats) -> {
+            Map<String, Long> millis = new LinkedHashMap<>();
+            for (Phase phase : PHASES) {
+                long ms = stats.millis.get(phase.ordinal());
+                if (ms > 0) millis.put(phase.name(), ms);
+            }
+            out.add(new ClassSummary(cut, Objects.toString(stats.outcome, ""), stats.iterations, millis));
+        });
+        return out;
+    }
+
+    private ClassStats classStats(String cut) {
+        return classes.computeIfAbsent(cut, c -> new ClassStats());
+    }
+
+    private static final class PhaseStats {
+        final Histogram millis = new Histogram();
+        final LongAdder failures = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder inputTokens = new LongAdder();
+        final LongAdder outputTokens = new LongAdder();
+        final LongAdder retries = new LongAdder();
+
+        void add(long ms, long size, int in, int out, int retried, boolean succeeded) {
+            millis.record(ms);
+            if (!succeeded) failures.increment();
+            bytes.add(size);
+            inputTokens.add(in);
+            outputTokens.add(out);
+            retries.add(retried);
+        }
+    }
+
+    private static final class ClassStats {
+        final AtomicLongArray millis = new AtomicLongArray(PHASES.length);
+        volatile String outcome;
+        volatile int iterations;
+    }
+}
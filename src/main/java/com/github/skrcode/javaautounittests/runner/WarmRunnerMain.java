@@ -0,0 +1,252 @@
+package com.github.skrcode.javaautounittests.runner;
+
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.engine.support.descriptor.MethodSource;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Entry point of the warm test-runner JVM (runs <em>outside</em> the IDE, so it must only depend on
+ * the JDK and the JUnit Platform Launcher).
+ * <p>
+ * The module's classpath – minus its test output directories – is loaded once by the application
+ * class loader and stays warm. Each {@code RUN} request loads the test output directories (given as
+ * program arguments) in a fresh child class loader, so a recompiled test class is picked up without
+ * restarting the JVM.
+ * <p>
+ * Protocol over a loopback socket, one line per message:
+ * <pre>
+ *   → RUN pkg.FooTest,pkg.BarTest
+ *   ← ##teamcity[...]            (service messages, same shape as IntelliJ's JUnit runner)
+ *   ← JAIPILOT_RUNNER_FAILURE …  (instead, if this JVM cannot run the classes at all)
+ *   ← END
+ *   → DUMP /path/to/run.exec     (optional: JaCoCo data collected since the last RUN)
+ *   ← END
+ * </pre>
+ * The port is announced on stdout as {@value #PORT_PREFIX}{@code <port>}. The JVM exits once the
+ * plugin closes the connection. {@value #RUNNER_FAILURE} marks failures of the runner rather than of the
+ * tests – the launcher threw, or no engine discovered any test – which the plugin answers with a
+ * regular JUnit run; a selected class that runs no tests while others do is reported as failed.
+ */
+public final class WarmRunnerMain {
+
+    public static final String PORT_PREFIX = "JAIPILOT_RUNNER_PORT ";
+    public static final String END = "END";
+    public static final String RUNNER_FAILURE = "JAIPILOT_RUNNER_FAILURE ";
+
+    public static void main(String[] args) throws Exception {
+        URL[] reloadable = new URL[args.length];
+        for (int i = 0; i < args.length; i++) reloadable[i] = Path.of(args[i]).toUri().toURL();
+
+        Launcher launcher = LauncherFactory.create();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            System.out.println(PORT_PREFIX + server.getLocalPort());
+            System.out.flush();
+
+            try (Socket socket = server.accept();
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("RUN ")) {
+                        resetCoverage();
+                        run(launcher, reloadable, line.substring(4).split(","), out);
+                    } else if (line.startsWith("DUMP ")) {
+                        dumpCoverage(Path.of(line.substring(5)));
+                    }
+                    out.println(END);
+                    out.flush();
+                }
+            }
+        }
+    }
+
+    private static void run(Launcher launcher, URL[] reloadable, String[] classNames, PrintWriter out) {
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader tests = new URLClassLoader(reloadable, WarmRunnerMain.class.getClassLoader())) {
+            Thread.currentThread().setContextClassLoader(tests);
+            List<org.junit.platform.engine.DiscoverySelector> selectors = new ArrayList<>();
+            List<String> selected = new ArrayList<>();
+            for (String name : classNames) {
+                try {
+                    selectors.add(DiscoverySelectors.selectClass(tests.loadClass(name.trim())));
+                    selected.add(name.trim());
+                } catch (ClassNotFoundException | LinkageError e) {
+                    failClass(out, name.trim(), "Cannot load test class: " + e);
+                }
+            }
+            if (selectors.isEmpty()) return;
+            LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request().selectors(selectors).build();
+            TestPlan plan = launcher.discover(request);
+            if (plan.countTestIdentifiers(TestIdentifier::isTest) == 0) {
+                out.println(RUNNER_FAILURE + "no test engine discovered tests in " + String.join(", ", selected));
+                return;
+            }
+            ServiceMessages messages = new ServiceMessages(out);
+            launcher.execute(plan, messages);
+            for (String name : selected) {
+                if (!messages.ran(name)) failClass(out, name, "No tests found in " + name);
+            }
+        } catch (Throwable t) {
+            out.println(RUNNER_FAILURE + String.valueOf(t).replace('\n', ' ').replace('\r', ' '));
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+        }
+    }
+
+    /** Reports a failure of a whole test class, as a suite that failed before any test started. */
+    private static void failClass(PrintWriter out, String name, String message) {
+        String node = escape("class:" + name);
+        out.println("##teamcity[testSuiteStarted name='" + escape(name) + "' locationHint='java:suite://"
+                + escape(name) + "' nodeId='" + node + "']");
+        out.println("##teamcity[testFailed name='" + escape(name) + "' message='" + escape(message) + "' nodeId='" + node + "']");
+    }
+
+    // ── JaCoCo, when the JVM was started with its agent ──────────────────────
+
+    private static void resetCoverage() {
+        Object agent = coverageAgent();
+        if (agent == null) return;
+        try {
+            agent.getClass().getMethod("reset").invoke(agent);
+        } catch (ReflectiveOperationException ignored) {
+            // no coverage for this run
+        }
+    }
+
+    private static void dumpCoverage(Path execFile) {
+        Object agent = coverageAgent();
+        if (agent == null) return;
+        try {
+            byte[] data = (byte[]) agent.getClass().getMethod("getExecutionData", boolean.class).invoke(agent, false);
+            Files.write(execFile, data);
+        } catch (ReflectiveOperationException | IOException ignored) {
+            // no coverage for this run
+        }
+    }
+
+    /** {@code org.jacoco.agent.rt.RT.getAgent()}, looked up reflectively so the agent stays optional. */
+    private static Object coverageAgent() {
+        try {
+            return Class.forName("org.jacoco.agent.rt.RT").getMethod("getAgent").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /** Reports test events as TeamCity service messages so the IDE side can reuse its router. */
+    private static final class ServiceMessages implements TestExecutionListener {
+        private final PrintWriter out;
+        private final Map<String, Integer> nodeIds = new HashMap<>();
+        private final Map<String, Long> startedNanos = new HashMap<>();
+        /** Classes at least one test or container was started for, nested classes included. */
+        private final Set<String> startedClasses = new HashSet<>();
+
+        ServiceMessages(PrintWriter out) {
+            this.out = out;
+        }
+
+        /** True if {@code className} or one of its nested classes started executing. */
+        boolean ran(String className) {
+            for (String started : startedClasses) {
+                if (started.equals(className) || started.startsWith(className + "$") || started.startsWith(className + ".")) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void executionStarted(TestIdentifier id) {
+            TestSource source = id.getSource().orElse(null);
+            String location = location(source);
+            if (location == null) return;
+            startedClasses.add(source instanceof MethodSource m ? m.getClassName() : ((ClassSource) source).getClassName());
+            startedNanos.put(id.getUniqueId(), System.nanoTime());
+            out.println("##teamcity[" + (id.isTest() ? "testStarted" : "testSuiteStarted")
+                    + " name='" + escape(id.getDisplayName()) + "' locationHint='" + escape(location)
+                    + "' nodeId='" + node(id) + "']");
+        }
+
+        @Override
+        public void executionSkipped(TestIdentifier id, String reason) {
+            if (!id.isTest() || id.getSource().map(ServiceMessages::location).isEmpty()) return;
+            executionStarted(id);
+            out.println("##teamcity[testIgnored name='" + escape(id.getDisplayName()) + "' message='" + escape(String.valueOf(reason))
+                    + "' nodeId='" + node(id) + "']");
+            executionFinished(id, TestExecutionResult.successful());
+        }
+
+        @Override
+        public void executionFinished(TestIdentifier id, TestExecutionResult result) {
+            if (result.getStatus() == TestExecutionResult.Status.ABORTED) {            // failed assumption
+                out.println("##teamcity[testIgnored name='" + escape(id.getDisplayName()) + "' message='"
+                        + escape(result.getThrowable().map(t -> String.valueOf(t.getMessage())).orElse("aborted"))
+                        + "' nodeId='" + node(id) + "']");
+            } else if (result.getStatus() != TestExecutionResult.Status.SUCCESSFUL) {
+                Throwable failure = result.getThrowable().orElse(null);
+                StringWriter trace = new StringWriter();
+                if (failure != null) failure.printStackTrace(new PrintWriter(trace));
+                out.println("##teamcity[testFailed name='" + escape(id.getDisplayName())
+                        + "' message='" + escape(failure == null ? result.getStatus().name() : String.valueOf(failure.getMessage()))
+                        + "' details='" + escape(trace.toString()) + "' nodeId='" + node(id) + "']");
+            }
+            if (id.getSource().isPresent() && location(id.getSource().get()) != null) {
+                Long started = startedNanos.remove(id.getUniqueId());
+                long millis = started == null ? 0 : (System.nanoTime() - started) / 1_000_000;
+                out.println("##teamcity[" + (id.isTest() ? "testFinished" : "testSuiteFinished")
+                        + " name='" + escape(id.getDisplayName()) + "' duration='" + millis + "' nodeId='" + node(id) + "']");
+            }
+        }
+
+        private int node(TestIdentifier id) {
+            return nodeIds.computeIfAbsent(id.getUniqueId(), k -> nodeIds.size() + 1);
+        }
+
+        private static String location(TestSource source) {
+            if (source instanceof MethodSource m) return "java:test://" + m.getClassName() + "/" + m.getMethodName();
+            if (source instanceof ClassSource c) return "java:suite://" + c.getClassName();
+            return null;
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder b = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '|'  -> b.append("||");
+                case '\'' -> b.append("|'");
+                case '\n' -> b.append("|n");
+                case '\r' -> b.append("|r");
+                case '['  -> b.append("|[");
+                case ']'  -> b.append("|]");
+                default   -> b.append(c);
+            }
+        }
+        return b.toString();
+    }
+
+    private WarmRunnerMain() {}
+}
@@ -1,5 +1,6 @@
 package com.github.skrcode.javaautounittests.settings;
 
+import com.github.skrcode.javaautounittests.BulkOrder;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
@@ -13,6 +14,21 @@ public class AISettings implements PersistentStateComponent<AISettings.State> {
         public String openAiKey = "";
         public String model = "gpt-4.1-nano";
         public String testDirectory = "";
+        public int maxParallelClasses = 4;
+        public String bulkOrder = BulkOrder.LONGEST_FIRST.name();
+        public int maxParallelCompiles = 1;
+        public int maxParallelExecutions = 2;
+        public String promptVersion = "refs/heads/main";
+        public boolean streamResponses = true;
+        public int responseCacheMaxMb = 256;
+        public boolean useWarmRunner = false;
+        public boolean precompileInMemory = true;
+        public int contextTokenBudget = 12_000;
+        public int requestsPerMinute = 60;
+        public int tokensPerMinute = 1_000_000;
+        public boolean hedgeRequests = false;
+        public int hedgePercentile = 95;
+        public int hedgeMaxExtraPercent = 10;
 
     }
 
@@ -57,4 +73,131 @@ public class AISettings implements PersistentStateComponent<AISettings.State> {
         return state.testDirectory;
     }
 
+    public int getMaxParallelClasses() {
+        return Math.max(1, state.maxParallelClasses);
+    }
+
+    public void setMaxParallelClasses(int maxParallelClasses) {
+        state.maxParallelClasses = maxParallelClasses;
+    }
+
+    public int getMaxParallelCompiles() {
+        return Math.max(1, state.maxParallelCompiles);
+    }
+
+    public void setMaxParallelCompiles(int maxParallelCompiles) {
+        state.maxParallelCompiles = maxParallelCompiles;
+    }
+
+    public int getMaxParallelExecutions() {
+        return Math.max(1, state.maxParallelExecutions);
+    }
+
+    public void setMaxParallelExecutions(int maxParallelExecutions) {
+        state.maxParallelExecutions = maxParallelExecutions;
+    }
+
+    /** Git ref of the base prompt to use, or {@code "bundled"} to stay offline. */
+    public String getPromptVersion() {
+        return state.promptVersion == null ? "" : state.promptVersion.trim();
+    }
+
+    public void setPromptVersion(String promptVersion) {
+        state.promptVersion = promptVersion;
+    }
+
+    public boolean isStreamResponses() {
+        return state.streamResponses;
+    }
+
+    public void setStreamResponses(boolean streamResponses) {
+        state.streamResponses = streamResponses;
+    }
+
+    public int getResponseCacheMaxMb() {
+        return Math.max(1, state.responseCacheMaxMb);
+    }
+
+    public boolean isUseWarmRunner() {
+        return state.useWarmRunner;
+    }
+
+    public void setUseWarmRunner(boolean useWarmRunner) {
+        state.useWarmRunner = useWarmRunner;
+    }
+
+    /** Compile candidates in memory first and send only those that pass to the project build. */
+    public boolean isPrecompileInMemory() {
+        return state.precompileInMemory;
+    }
+
+    public void setPrecompileInMemory(boolean precompileInMemory) {
+        state.precompileInMemory = precompileInMemory;
+    }
+
+    /** Default order of bulk runs; unknown stored values fall back to {@link BulkOrder#LONGEST_FIRST}. */
+    public BulkOrder getBulkOrder() {
+        for (BulkOrder order : BulkOrder.values()) {
+            if (order.name().equals(state.bulkOrder)) return order;
+        }
+        return BulkOrder.LONGEST_FIRST;
+    }
+
+    public void setBulkOrder(BulkOrder bulkOrder) {
+        state.bulkOrder = bulkOrder.name();
+    }
+
+    /** Approximate token budget for the class-under-test source in each prompt. */
+    public int getContextTokenBudget() {
+        return Math.max(1_000, state.contextTokenBudget);
+    }
+
+    public void setContextTokenBudget(int contextTokenBudget) {
+        state.contextTokenBudget = contextTokenBudget;
+    }
+
+    /** Requests per minute the API plan allows; shared by all classes of all runs. */
+    public int getRequestsPerMinute() {
+        return Math.max(1, state.requestsPerMinute);
+    }
+
+    public void setRequestsPerMinute(int requestsPerMinute) {
+        state.requestsPerMinute = requestsPerMinute;
+    }
+
+    /** Prompt tokens per minute the API plan allows. */
+    public int getTokensPerMinute() {
+        return Math.max(1_000, state.tokensPerMinute);
+    }
+
+    public void setTokensPerMinute(int tokensPerMinute) {
+        state.tokensPerMinute = tokensPerMinute;
+    }
+
+    public boolean isHedgeRequests() {
+        return state.hedgeRequests;
+    }
+
+    public void setHedgeRequests(boolean hedgeRequests) {
+        state.hedgeRequests = hedgeRequests;
+    }
+
+    /** Latency percentile of recent requests after which a slow request is duplicated. */
+    public int getHedgePercentile() {
+        return Math.min(99, Math.max(50, state.hedgePercentile));
+    }
+
+    public void setHedgePercentile(int hedgePercentile) {
+        state.hedgePercentile = hedgePercentile;
+    }
+
+    /** Hedged requests allowed, as a percentage of all requests. */
+    public int getHedgeMaxExtraPercent() {
+        return Math.min(100, Math.max(1, state.hedgeMaxExtraPercent));
+    }
+
+    public void setHedgeMaxExtraPercent(int hedgeMaxExtraPercent) {
+        state.hedgeMaxExtraPercent = hedgeMaxExtraPercent;
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.github.skrcode.javaautounittests.settings;
 
+import com.github.skrcode.javaautounittests.BulkOrder;
 import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.options.Configurable;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
@@ -16,6 +17,20 @@ public class AISettingsConfigurable implements Configurable {
     private JComboBox<String> modelCombo;
     private JPanel panel;
     private TextFieldWithBrowseButton testDirField;
+    private JSpinner parallelClassesSpinner;
+    private JSpinner parallelCompilesSpinner;
+    private JSpinner parallelExecutionsSpinner;
+    private JComboBox<BulkOrder> bulkOrderCombo;
+    private JSpinner contextBudgetSpinner;
+    private JSpinner requestsPerMinuteSpinner;
+    private JSpinner tokensPerMinuteSpinner;
+    private JTextField promptVersionField;
+    private JCheckBox streamResponsesBox;
+    private JCheckBox warmRunnerBox;
+    private JCheckBox precompileBox;
+    private JCheckBox hedgeRequestsBox;
+    private JSpinner hedgePercentileSpinner;
+    private JSpinner hedgeExtraSpinner;
 
 
     @Override
@@ -49,6 +64,58 @@ public class AISettingsConfigurable implements Configurable {
                 FileChooserDescriptorFactory.createSingleFolderDescriptor()
         );
 
+        // Bulk concurrency
+        parallelClassesSpinner = new JSpinner(new SpinnerNumberModel(4, 1, 32, 1));
+        parallelClassesSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+        parallelClassesSpinner.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+        parallelCompilesSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 8, 1));
+        parallelCompilesSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+        parallelCompilesSpinner.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+        parallelExecutionsSpinner = new JSpinner(new SpinnerNumberModel(2, 1, 16, 1));
+        parallelExecutionsSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+        parallelExecutionsSpinner.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+
+        bulkOrderCombo = new JComboBox<>(BulkOrder.values());
+        bulkOrderCombo.setAlignmentX(Component.LEFT_ALIGNMENT);
+        bulkOrderCombo.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+
+        // Prompt size
+        contextBudgetSpinner = new JSpinner(new SpinnerNumberModel(12_000, 1_000, 200_000, 1_000));
+        contextBudgetSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+        contextBudgetSpinner.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+
+        // API plan limits
+        requestsPerMinuteSpinner = new JSpinner(new SpinnerNumberModel(60, 1, 100_000, 10));
+        requestsPerMinuteSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+        requestsPerMinuteSpinner.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+        tokensPerMinuteSpinner = new JSpinner(new SpinnerNumberModel(1_000_000, 1_000, 100_000_000, 100_000));
+        tokensPerMinuteSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+        tokensPerMinuteSpinner.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+
+        // Base prompt pin
+        promptVersionField = new JTextField();
+        promptVersionField.setAlignmentX(Component.LEFT_ALIGNMENT);
+        promptVersionField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+
+        streamResponsesBox = new JCheckBox("Stream replies (abort bad answers early, live preview)");
+        streamResponsesBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        warmRunnerBox = new JCheckBox("Keep a warm test JVM per module during bulk runs (experimental)");
+        warmRunnerBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        precompileBox = new JCheckBox("Compile generated tests in memory before writing them to the project");
+        precompileBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        // Request hedging
+        hedgeRequestsBox = new JCheckBox("Hedge slow model requests (send a duplicate, keep the first reply)");
+        hedgeRequestsBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+        hedgePercentileSpinner = new JSpinner(new SpinnerNumberModel(95, 50, 99, 1));
+        hedgePercentileSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+        hedgePercentileSpinner.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+        hedgeExtraSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 100, 1));
+        hedgeExtraSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+        hedgeExtraSpinner.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+
         // Add components
         panel.add(Box.createVerticalStrut(8));
         panel.add(new JLabel("OpenAI API Key:"));
@@ -62,6 +129,54 @@ public class AISettingsConfigurable implements Configurable {
         panel.add(new JLabel("Select Test Root (e.g., src/test/java):"));
         panel.add(Box.createVerticalStrut(4));
         panel.add(testDirField);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Classes generated in parallel (bulk runs):"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(parallelClassesSpinner);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Project builds running at once (bulk runs):"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(parallelCompilesSpinner);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Test JVMs running at once (bulk runs):"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(parallelExecutionsSpinner);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Order of classes in bulk runs:"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(bulkOrderCombo);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Token budget for the class under test in each prompt:"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(contextBudgetSpinner);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Requests per minute allowed by your API plan:"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(requestsPerMinuteSpinner);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Tokens per minute allowed by your API plan:"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(tokensPerMinuteSpinner);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Base prompt version (git ref, or \"bundled\" for offline use):"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(promptVersionField);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(streamResponsesBox);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(warmRunnerBox);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(precompileBox);
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(hedgeRequestsBox);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Hedge a request once it runs longer than this percentile of recent requests:"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(hedgePercentileSpinner);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(new JLabel("Maximum extra requests from hedging (% of all requests):"));
+        panel.add(Box.createVerticalStrut(4));
+        panel.add(hedgeExtraSpinner);
         panel.add(Box.createVerticalGlue());
 
 
@@ -75,7 +190,21 @@ public class AISettingsConfigurable implements Configurable {
         AISettings.State settings = AISettings.getInstance().getState();
         return !apiKeyField.getText().equals(settings.openAiKey)
                 || !modelCombo.getSelectedItem().equals(settings.model)
-                || !testDirField.getText().equals(settings.testDirectory);
+                || !testDirField.getText().equals(settings.testDirectory)
+                || (int) parallelClassesSpinner.getValue() != settings.maxParallelClasses
+                || (int) parallelCompilesSpinner.getValue() != settings.maxParallelCompiles
+                || (int) parallelExecutionsSpinner.getValue() != settings.maxParallelExecutions
+                || bulkOrderCombo.getSelectedItem() != AISettings.getInstance().getBulkOrder()
+                || (int) contextBudgetSpinner.getValue() != settings.contextTokenBudget
+                || (int) requestsPerMinuteSpinner.getValue() != settings.requestsPerMinute
+                || (int) tokensPerMinuteSpinner.getValue() != settings.tokensPerMinute
+                || !promptVersionField.getText().equals(settings.promptVersion)
+                || streamResponsesBox.isSelected() != settings.streamResponses
+                || warmRunnerBox.isSelected() != settings.useWarmRunner
+                || precompileBox.isSelected() != settings.precompileInMemory
+                || hedgeRequestsBox.isSelected() != settings.hedgeRequests
+                || (int) hedgePercentileSpinner.getValue() != settings.hedgePercentile
+                || (int) hedgeExtraSpinner.getValue() != settings.hedgeMaxExtraPercent;
     }
 
     @Override
@@ -83,6 +212,20 @@ public class AISettingsConfigurable implements Configurable {
         AISettings.getInstance().setOpenAiKey(apiKeyField.getText());
         AISettings.getInstance().setModel((String) modelCombo.getSelectedItem());
         AISettings.getInstance().setTestDirectory(testDirField.getText());
+        AISettings.getInstance().setMaxParallelClasses((int) parallelClassesSpinner.getValue());
+        AISettings.getInstance().setMaxParallelCompiles((int) parallelCompilesSpinner.getValue());
+        AISettings.getInstance().setMaxParallelExecutions((int) parallelExecutionsSpinner.getValue());
+        AISettings.getInstance().setBulkOrder((BulkOrder) bulkOrderCombo.getSelectedItem());
+        AISettings.getInstance().setContextTokenBudget((int) contextBudgetSpinner.getValue());
+        AISettings.getInstance().setRequestsPerMinute((int) requestsPerMinuteSpinner.getValue());
+        AISettings.getInstance().setTokensPerMinute((int) tokensPerMinuteSpinner.getValue());
+        AISettings.getInstance().setPromptVersion(promptVersionField.getText());
+        AISettings.getInstance().setStreamResponses(streamResponsesBox.isSelected());
+        AISettings.getInstance().setUseWarmRunner(warmRunnerBox.isSelected());
+        AISettings.getInstance().setPrecompileInMemory(precompileBox.isSelected());
+        AISettings.getInstance().setHedgeRequests(hedgeRequestsBox.isSelected());
+        AISettings.getInstance().setHedgePercentile((int) hedgePercentileSpinner.getValue());
+        AISettings.getInstance().setHedgeMaxExtraPercent((int) hedgeExtraSpinner.getValue());
 
     }
 
@@ -92,6 +235,20 @@ public class AISettingsConfigurable implements Configurable {
         apiKeyField.setText(settings.openAiKey);
         modelCombo.setSelectedItem(settings.model);
         testDirField.setText(settings.testDirectory);
+        parallelClassesSpinner.setValue(Math.max(1, settings.maxParallelClasses));
+        parallelCompilesSpinner.setValue(Math.min(8, Math.max(1, settings.maxParallelCompiles)));
+        parallelExecutionsSpinner.setValue(Math.min(16, Math.max(1, settings.maxParallelExecutions)));
+        bulkOrderCombo.setSelectedItem(AISettings.getInstance().getBulkOrder());
+        contextBudgetSpinner.setValue(Math.max(1_000, settings.contextTokenBudget));
+        requestsPerMinuteSpinner.setValue(Math.max(1, settings.requestsPerMinute));
+        tokensPerMinuteSpinner.setValue(Math.max(1_000, settings.tokensPerMinute));
+        promptVersionField.setText(settings.promptVersion);
+        streamResponsesBox.setSelected(settings.streamResponses);
+        warmRunnerBox.setSelected(settings.useWarmRunner);
+        precompileBox.setSelected(settings.precompileInMemory);
+        hedgeRequestsBox.setSelected(settings.hedgeRequests);
+        hedgePercentileSpinner.setValue(Math.min(99, Math.max(50, settings.hedgePercentile)));
+        hedgeExtraSpinner.setValue(Math.min(100, Math.max(1, settings.hedgeMaxExtraPercent)));
 
     }
 }